@@ -2,48 +2,89 @@ package teammate;
 
 import java.util.logging.*;
 import java.io.IOException;
+import java.util.Locale;
 
+    /**
+     * Shared logging setup: everything goes to logs/system.log.
+     *
+     * The log file is opened on the first record that is actually written, not when the
+     * first class loads, so short batch runs do not pay for it before doing any work.
+     * The level defaults to INFO; run with -Dteammate.log.level=ALL (or FINE) to get the
+     * per-participant detail back.
+     */
     public class AppLogger {
-        private static FileHandler fileHandler;
+        private static final Handler fileHandler = new LazyFileHandler();
 
         static {
-            try {
-                new java.io.File("logs").mkdirs();
-                fileHandler = new FileHandler("logs/system.log", true);
-                fileHandler.setFormatter(new SimpleFormatter());
-
-                Logger rootLogger = Logger.getLogger("");
-                rootLogger.setLevel(Level.ALL);
-
-                for (Handler handler : rootLogger.getHandlers()) {
-                    rootLogger.removeHandler(handler);
-                }
-
+            Logger rootLogger = Logger.getLogger("");
+            rootLogger.setLevel(parseLevel(System.getProperty("teammate.log.level", "INFO")));
 
+            for (Handler handler : rootLogger.getHandlers()) {
+                rootLogger.removeHandler(handler);
+            }
 
-                rootLogger.addHandler(fileHandler);
+            rootLogger.addHandler(fileHandler);
+        }
 
-            } catch (IOException e) {
-                System.err.println("Failed to initialize logger: " + e.getMessage());
+        private static Level parseLevel(String name) {
+            try {
+                return Level.parse(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown log level " + name + ", using INFO");
+                return Level.INFO;
             }
         }
 
         public static Logger getLogger(Class<?> clazz) {
             Logger logger = Logger.getLogger(clazz.getName());
 
-            if (fileHandler != null) {
-                boolean exists = false;
-                for (Handler handler : logger.getHandlers()) {
-                    if (handler instanceof FileHandler) {
-                        exists = true;
-                        break;
-                    }
+            boolean exists = false;
+            for (Handler handler : logger.getHandlers()) {
+                if (handler == fileHandler) {
+                    exists = true;
+                    break;
                 }
-                if (!exists) logger.addHandler(fileHandler);
             }
+            if (!exists) logger.addHandler(fileHandler);
 
             logger.setUseParentHandlers(false);
             return logger;
         }
-    }
 
+        // Creates the logs directory and the FileHandler on first use
+        private static class LazyFileHandler extends Handler {
+            private FileHandler delegate;
+            private boolean failed;
+
+            private synchronized FileHandler delegate() {
+                if (delegate == null && !failed) {
+                    try {
+                        new java.io.File("logs").mkdirs();
+                        delegate = new FileHandler("logs/system.log", true);
+                        delegate.setFormatter(new SimpleFormatter());
+                    } catch (IOException e) {
+                        failed = true;
+                        System.err.println("Failed to initialize logger: " + e.getMessage());
+                    }
+                }
+                return delegate;
+            }
+
+            @Override
+            public void publish(LogRecord record) {
+                if (!isLoggable(record)) return;
+                FileHandler handler = delegate();
+                if (handler != null) handler.publish(record);
+            }
+
+            @Override
+            public synchronized void flush() {
+                if (delegate != null) delegate.flush();
+            }
+
+            @Override
+            public synchronized void close() {
+                if (delegate != null) delegate.close();
+            }
+        }
+    }
@@ -0,0 +1,772 @@
+package teammate;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Non-interactive entry point for scripted formation runs (cron jobs, benchmarks).
+ * Runs load -> build -> optimize -> save once and prints key=value stats to stdout.
+ *
+ * Usage: java teammate.Main --input participants.csv --team-size 5 --seed 42
+ *                           --engine concurrent --threads 4 --output formed_teams.csv
+ *
+ * --input takes a comma-separated list to merge several registration files (see
+ * ParticipantMerge).
+ * Seeded runs are looked up in the FormationCache first; pass --no-cache to always form.
+ * --stream writes teams while they are still being formed (see TeamStreamWriter).
+ * Every formed (non-streamed) run is appended to the RunStore history.
+ * --profile adds per-phase allocation, GC and heap figures (see FormationProfiler).
+ * --event FILE[:PRIORITY] (repeatable) forms several events at once on one shared worker
+ * pool (see EventScheduler); each event is written next to --output with its name appended.
+ * --workers HOST:PORT,... or --spawn-workers N splits the pool over FormationWorker
+ * processes (see FormationCoordinator).
+ * --external forms pools larger than the heap from spill files, one chunk at a time
+ * (see ExternalFormation).
+ */
+public class BatchMode {
+
+    private static final Logger logger = AppLogger.getLogger(BatchMode.class);
+
+    static final String[] ENGINES = {"concurrent", "snake"};
+
+    private String input = "participants_sample.csv";
+    private String output = "formed_teams.csv";
+    private int teamSize = 5;
+    private Long seed = null;
+    private String engine = "concurrent";
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean useCache = true;
+    private boolean stream = false;
+    private int window = 64;
+    private String report = null;
+    private String historyOf = null;
+    private boolean avoidRepeats = false;
+    private TeamRules rules = null;
+    private boolean profile = false;
+    private String jfr = null;
+    private FormationProfiler profiler = null;
+    private boolean refine = false;
+    private FeasibilityCheck.Result feasibility = null;
+    private boolean train = false;
+    private final List<String[]> events = new ArrayList<>();
+    private String workerList = null;
+    private int spawnWorkers = 0;
+    private boolean engineGiven = false;
+    private boolean external = false;
+    private int chunk = 200_000;
+    private String spillDir = null;
+
+    public static int run(String[] args) {
+        BatchMode batch = new BatchMode();
+        try {
+            batch.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("error=" + e.getMessage());
+            printUsage();
+            return 2;
+        }
+        return batch.execute();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String key = args[i];
+            String value = null;
+
+            int eq = key.indexOf('=');
+            if (eq > 0) {
+                value = key.substring(eq + 1);
+                key = key.substring(0, eq);
+            } else if (!key.equals("--batch") && !key.equals("--help") && !key.equals("--no-cache")
+                    && !key.equals("--stream") && !key.equals("--avoid-repeats")
+                    && !key.equals("--profile") && !key.equals("--refine") && !key.equals("--train")
+                    && !key.equals("--external")) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("missing value for " + key);
+                }
+                value = args[++i];
+            }
+
+            switch (key) {
+                case "--batch" -> { }
+                case "--no-cache" -> useCache = false;
+                case "--stream" -> stream = true;
+                case "--avoid-repeats" -> avoidRepeats = true;
+                case "--rules" -> rules = loadRules(value);
+                case "--profile" -> profile = true;
+                case "--refine" -> refine = true;
+                case "--train" -> train = true;
+                case "--external" -> external = true;
+                case "--chunk" -> chunk = parseInt(key, value);
+                case "--spill-dir" -> spillDir = value;
+                case "--jfr" -> jfr = value;
+                case "--window" -> window = parseInt(key, value);
+                case "--report" -> report = value;
+                case "--history" -> historyOf = value.trim();
+                case "--help" -> throw new IllegalArgumentException("help requested");
+                case "--input" -> input = value;
+                case "--event" -> events.add(parseEvent(value));
+                case "--workers" -> workerList = value;
+                case "--spawn-workers" -> spawnWorkers = parseInt(key, value);
+                case "--output" -> output = value;
+                case "--team-size" -> teamSize = parseInt(key, value);
+                case "--seed" -> seed = parseLong(key, value);
+                case "--threads" -> threads = parseInt(key, value);
+                case "--engine" -> {
+                    engine = value.toLowerCase();
+                    engineGiven = true;
+                }
+                default -> throw new IllegalArgumentException("unknown option " + key);
+            }
+        }
+
+        if (teamSize < 3 || teamSize > 10) {
+            throw new IllegalArgumentException("team size must be between 3 and 10");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        if (!Arrays.asList(ENGINES).contains(engine)) {
+            throw new IllegalArgumentException("unknown engine " + engine);
+        }
+        if (rules == null) {
+            rules = TeamRules.getDefault();
+        }
+        if (!events.isEmpty() && (stream || engine.equals("snake"))) {
+            throw new IllegalArgumentException("--event works with the concurrent engine and without --stream");
+        }
+        if (workerList != null || spawnWorkers > 0) {
+            if (workerList != null && FormationCoordinator.parseAddresses(workerList).isEmpty()) {
+                throw new IllegalArgumentException("no worker addresses in " + workerList);
+            }
+            // Workers only receive formation fields, not the IDs the pair history is keyed on
+            if (stream || avoidRepeats || !events.isEmpty()) {
+                throw new IllegalArgumentException("worker runs cannot be combined with --stream, --avoid-repeats or --event");
+            }
+        }
+        if (external) {
+            // Chunks are drafted one after another; the other modes need the whole pool in memory
+            if (engineGiven && !engine.equals("snake")) {
+                throw new IllegalArgumentException("--external forms with the snake engine");
+            }
+            if (stream || avoidRepeats || !events.isEmpty() || workerList != null || spawnWorkers > 0
+                    || report != null || inputFiles().size() > 1) {
+                throw new IllegalArgumentException("--external cannot be combined with --stream, --avoid-repeats, "
+                        + "--event, --workers, --report or several input files");
+            }
+            if (chunk < teamSize * 10) {
+                throw new IllegalArgumentException("chunk must be at least " + teamSize * 10);
+            }
+            if (spillDir != null && !new File(spillDir).isDirectory()) {
+                throw new IllegalArgumentException("spill directory not found: " + spillDir);
+            }
+            engine = "snake";
+        }
+        if (spawnWorkers < 0) {
+            throw new IllegalArgumentException("spawn-workers must not be negative");
+        }
+        // Training runs for the class-data archive (see Main) must leave no trace behind
+        if (train) {
+            useCache = false;
+            try {
+                File scratch = File.createTempFile("teammate-train", ".csv");
+                scratch.deleteOnExit();
+                output = scratch.getPath();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("cannot create training output: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<String> inputFiles() {
+        List<String> files = new ArrayList<>();
+        for (String part : input.split(",")) {
+            if (!part.isBlank()) files.add(part.trim());
+        }
+        return files;
+    }
+
+    // FILE or FILE:PRIORITY; the event is named after the file
+    private static String[] parseEvent(String value) {
+        String file = value;
+        String priority = "1";
+        int colon = value.lastIndexOf(':');
+        if (colon > 0 && value.substring(colon + 1).matches("\\d+")) {
+            file = value.substring(0, colon);
+            priority = value.substring(colon + 1);
+        }
+        int p = parseInt("--event", priority);
+        if (p < EventScheduler.MIN_PRIORITY || p > EventScheduler.MAX_PRIORITY) {
+            throw new IllegalArgumentException("event priority must be between "
+                    + EventScheduler.MIN_PRIORITY + " and " + EventScheduler.MAX_PRIORITY);
+        }
+        String name = new File(file).getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        return new String[]{name, file, priority};
+    }
+
+    private static TeamRules loadRules(String path) {
+        try {
+            return TeamRules.load(path);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read rules file " + path + ": " + e.getMessage());
+        }
+    }
+
+    private int execute() {
+        if (historyOf != null) {
+            return printHistory();
+        }
+        if (!events.isEmpty()) {
+            return startProfile() ? executeEvents() : 1;
+        }
+        logger.info("Batch run started: input=" + input + ", teamSize=" + teamSize
+                + ", seed=" + seed + ", engine=" + engine + ", threads=" + threads);
+
+        List<String> inputs = inputFiles();
+        for (String file : inputs) {
+            if (!new File(file).exists()) {
+                System.err.println("error=input file not found: " + file);
+                logger.severe("Batch input not found: " + file);
+                return 1;
+            }
+        }
+
+        if (!startProfile()) {
+            return 1;
+        }
+        if (external) {
+            return executeExternal();
+        }
+
+        phase("load");
+        long t0 = System.nanoTime();
+        List<Participant> participants = CSVHandler.loadParticipants(inputs);
+        long t1 = System.nanoTime();
+        if (inputs.size() > 1) {
+            ParticipantMerge.Result merge = CSVHandler.getLastMerge();
+            System.out.println("input_files=" + inputs.size());
+            System.out.println("rows_read=" + merge.getRowsRead());
+            System.out.println("duplicates=" + merge.getDuplicates());
+            System.out.println("remapped_ids=" + merge.getRemapped());
+        }
+        feasibility = FeasibilityCheck.analyze(participants, teamSize, rules);
+
+        if (stream) {
+            return executeStreaming(participants, t0, t1);
+        }
+
+        phase("form");
+        // Only seeded runs are reproducible, so only they may be answered from the cache;
+        // history-aware runs depend on every earlier run and are never cached
+        FormationCache cache = FormationCache.getDefault();
+        String cacheKey = null;
+        List<Team> teams = null;
+        PairHistory history = avoidRepeats ? RunStore.getDefault().getPairHistory() : null;
+        boolean distributed = workerList != null || spawnWorkers > 0;
+        if (seed != null && useCache && !avoidRepeats && !distributed) {
+            cacheKey = FormationCache.key(FormationCache.fingerprint(participants), teamSize, seed,
+                    engine + (refine && engine.equals("snake") ? "-refined" : "") + rules.cacheTag());
+            teams = cache.get(cacheKey, participants);
+        }
+        boolean cacheHit = teams != null;
+        long t2;
+
+        if (cacheHit) {
+            t2 = System.nanoTime();
+        } else if (distributed) {
+            teams = formWithWorkers(participants);
+            if (teams == null) {
+                return 1;
+            }
+            // The coordinator's global balancing pass is part of forming
+            t2 = System.nanoTime();
+            phase("optimize");
+        } else if (engine.equals("snake")) {
+            teams = formSnake(participants, history);
+            t2 = System.nanoTime();
+
+            phase("optimize");
+            if (refine) {
+                teams = quietBuilder(List.of()).refine(teams);
+            }
+            if (cacheKey != null && !teams.isEmpty()) {
+                cache.put(cacheKey, teams);
+            }
+        } else {
+            TeamBuilder builder = new TeamBuilder(participants, teamSize);
+            builder.setMaxThreads(threads);
+            builder.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+            builder.setPairHistory(history);
+            builder.setRules(rules);
+            if (seed != null) {
+                builder.setSeed(seed);
+            }
+
+            builder.formTeams();
+            t2 = System.nanoTime();
+
+            phase("optimize");
+            builder.optimizeBalance();
+            teams = builder.getFormedTeams();
+            if (cacheKey != null && !teams.isEmpty()) {
+                cache.put(cacheKey, teams);
+            }
+        }
+        long t3 = System.nanoTime();
+        if (history != null) {
+            System.out.println("repeat_pairs=" + countRepeatPairs(history, teams));
+        }
+        phase("save");
+        if (!cacheHit && !train) {
+            RunStore.getDefault().record(participants, teamSize, seed, engine, (t3 - t1) / 1_000_000, teams);
+        }
+
+        boolean saved = CSVHandler.saveFormedTeams(teams, output);
+        if (report != null) {
+            saved &= writeReport(QualityReport.of(teams, teamSize, rules));
+        }
+        long t4 = System.nanoTime();
+
+        int unassigned = participants.size() - teams.stream().mapToInt(t -> t.getMembers().size()).sum();
+        printStats(participants.size(), teams, unassigned, cacheHit, t0, t1, t2, t3, t4);
+        saved &= finishProfile();
+
+        if (!saved) {
+            System.err.println("error=failed to write " + output);
+            return 1;
+        }
+        logger.info("Batch run finished: " + teams.size() + " teams written to " + output);
+        return teams.isEmpty() ? 3 : 0;
+    }
+
+    // Formation and writing overlap; stats come from the writer's running totals
+    private int executeStreaming(List<Participant> participants, long t0, long t1) {
+        TeamBuilder builder = new TeamBuilder(participants, teamSize);
+        builder.setMaxThreads(threads);
+        builder.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+        builder.setRules(rules);
+        if (avoidRepeats) {
+            builder.setPairHistory(RunStore.getDefault().getPairHistory());
+        }
+        if (seed != null) {
+            builder.setSeed(seed);
+        }
+
+        TeamStreamWriter writer;
+        try {
+            writer = new TeamStreamWriter(output, Math.max(16, window * 2));
+        } catch (IOException e) {
+            System.err.println("error=failed to open " + output + ": " + e.getMessage());
+            return 1;
+        }
+
+        phase("form_and_save");
+        boolean saved = true;
+        QualityReport quality = new QualityReport(teamSize, rules);
+        Consumer<Team> sink = team -> {
+            quality.add(team);
+            writer.accept(team);
+        };
+        try (writer) {
+            if (engine.equals("snake")) {
+                // The draft needs the whole pool at once; only the writing overlaps
+                List<Team> teams = formSnake(participants,
+                        avoidRepeats ? RunStore.getDefault().getPairHistory() : null);
+                if (refine) teams = quietBuilder(List.of()).refine(teams);
+                teams.forEach(sink);
+            } else {
+                builder.streamTeams(sink, window);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("error=failed to write " + output + ": " + e.getMessage());
+            saved = false;
+        }
+        if (report != null) {
+            saved &= writeReport(quality);
+        }
+        long t2 = System.nanoTime();
+
+        System.out.println("input=" + input);
+        System.out.println("output=" + output);
+        System.out.println("engine=" + engine);
+        System.out.println("mode=stream");
+        System.out.println("window=" + window);
+        System.out.println("team_size=" + teamSize);
+        System.out.println("threads=" + threads);
+        System.out.println("seed=" + (seed == null ? "" : seed));
+        System.out.println("participants=" + participants.size());
+        printFeasibility();
+        System.out.println("teams=" + writer.getTeamCount());
+        System.out.println("assigned=" + writer.getMemberCount());
+        System.out.println("unassigned=" + (participants.size() - writer.getMemberCount()));
+        System.out.printf(Locale.ROOT, "min_team_avg=%.4f%n", writer.getMinAverage());
+        System.out.printf(Locale.ROOT, "max_team_avg=%.4f%n", writer.getMaxAverage());
+        System.out.printf(Locale.ROOT, "overall_avg=%.4f%n", writer.getOverallAverage());
+        System.out.printf(Locale.ROOT, "skill_range=%.4f%n", writer.getMaxAverage() - writer.getMinAverage());
+        System.out.printf(Locale.ROOT, "load_ms=%.3f%n", (t1 - t0) / 1e6);
+        System.out.printf(Locale.ROOT, "form_and_save_ms=%.3f%n", (t2 - t1) / 1e6);
+        System.out.printf(Locale.ROOT, "total_ms=%.3f%n", (t2 - t0) / 1e6);
+        saved &= finishProfile();
+
+        if (!saved) return 1;
+        return writer.getTeamCount() == 0 ? 3 : 0;
+    }
+
+    // The pool is never held in memory: bucketed and dealt into chunk files, formed chunk by chunk
+    private int executeExternal() {
+        TeamStreamWriter writer;
+        try {
+            writer = new TeamStreamWriter(output, Math.max(16, window * 2));
+        } catch (IOException e) {
+            System.err.println("error=failed to open " + output + ": " + e.getMessage());
+            return 1;
+        }
+
+        phase("form_and_save");
+        long t0 = System.nanoTime();
+        ExternalFormation formation = new ExternalFormation(teamSize, rules, chunk,
+                spillDir == null ? null : new File(spillDir));
+        formation.setRefine(refine);
+        if (seed != null) {
+            formation.setSeed(seed);
+        }
+        boolean saved = true;
+        try (writer) {
+            formation.run(input, writer);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("error=external formation failed: " + e.getMessage());
+            saved = false;
+        }
+        long t1 = System.nanoTime();
+
+        System.out.println("input=" + input);
+        System.out.println("output=" + output);
+        System.out.println("engine=" + engine + (refine ? "-refined" : ""));
+        System.out.println("mode=external");
+        System.out.println("chunk=" + chunk);
+        System.out.println("chunks=" + formation.getChunks());
+        System.out.println("team_size=" + teamSize);
+        System.out.println("seed=" + (seed == null ? "" : seed));
+        System.out.println("participants=" + formation.getRowsRead());
+        System.out.println("rejected=" + formation.getRejected());
+        System.out.println("duplicates=" + formation.getDuplicates());
+        System.out.println("teams=" + writer.getTeamCount());
+        System.out.println("assigned=" + writer.getMemberCount());
+        System.out.println("unassigned=" + formation.getUnassigned());
+        System.out.printf(Locale.ROOT, "min_team_avg=%.4f%n", writer.getMinAverage());
+        System.out.printf(Locale.ROOT, "max_team_avg=%.4f%n", writer.getMaxAverage());
+        System.out.printf(Locale.ROOT, "overall_avg=%.4f%n", writer.getOverallAverage());
+        System.out.printf(Locale.ROOT, "skill_range=%.4f%n", writer.getMaxAverage() - writer.getMinAverage());
+        System.out.printf(Locale.ROOT, "spill_mb=%.1f%n", formation.getSpillBytes() / 1048576.0);
+        System.out.printf(Locale.ROOT, "total_ms=%.3f%n", (t1 - t0) / 1e6);
+        saved &= finishProfile();
+
+        if (!saved) return 1;
+        return writer.getTeamCount() == 0 ? 3 : 0;
+    }
+
+    // Every event forms on the same bounded pool; results are written as they finish
+    private int executeEvents() {
+        long t0 = System.nanoTime();
+        Set<String> names = new HashSet<>();
+        for (String[] event : events) {
+            if (!new File(event[1]).exists()) {
+                System.err.println("error=input file not found: " + event[1]);
+                return 1;
+            }
+            if (!names.add(event[0])) {
+                System.err.println("error=two events are named " + event[0]);
+                return 2;
+            }
+        }
+
+        phase("form");
+        PairHistory history = avoidRepeats ? RunStore.getDefault().getPairHistory() : null;
+        Map<String, List<Participant>> pools = new HashMap<>();
+        Map<String, CompletableFuture<EventScheduler.EventResult>> results = new LinkedHashMap<>();
+        double eventsPerMinute;
+        int failed;
+        try (EventScheduler scheduler = new EventScheduler(threads)) {
+            for (String[] event : events) {
+                List<Participant> participants = CSVHandler.loadParticipants(event[1]);
+                pools.put(event[0], participants);
+                TeamBuilder builder = quietBuilder(participants);
+                builder.setPairHistory(history);
+                if (seed != null) {
+                    builder.setSeed(seed);
+                }
+                results.put(event[0], scheduler.submit(event[0], Integer.parseInt(event[2]), builder));
+            }
+            CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+                    .exceptionally(e -> null).join();
+            eventsPerMinute = scheduler.getEventsPerMinute();
+            failed = scheduler.getFailedEvents();
+        }
+
+        phase("save");
+        boolean saved = true;
+        int formed = 0;
+        System.out.println("mode=events");
+        System.out.println("events=" + events.size());
+        System.out.println("workers=" + threads);
+        System.out.println("team_size=" + teamSize);
+        System.out.println("seed=" + (seed == null ? "" : seed));
+        for (String[] event : events) {
+            String prefix = "event." + event[0] + ".";
+            System.out.println(prefix + "input=" + event[1]);
+            System.out.println(prefix + "priority=" + event[2]);
+            EventScheduler.EventResult result = results.get(event[0]).exceptionally(e -> null).join();
+            if (result == null) {
+                System.out.println(prefix + "status=failed");
+                continue;
+            }
+            List<Team> teams = result.getTeams();
+            String file = withSuffix(output, event[0]);
+            saved &= CSVHandler.saveFormedTeams(teams, file);
+            if (report != null) {
+                String path = withSuffix(report, event[0]);
+                try {
+                    QualityReport.of(teams, teamSize, rules).write(path);
+                } catch (IOException e) {
+                    System.err.println("error=failed to write report " + path + ": " + e.getMessage());
+                    saved = false;
+                }
+            }
+            if (!train) {
+                RunStore.getDefault().record(pools.get(event[0]), teamSize, seed, engine, result.getRunMillis(), teams);
+            }
+            if (!teams.isEmpty()) formed++;
+            TeamStats stats = TeamStats.of(teams);
+            System.out.println(prefix + "output=" + file);
+            System.out.println(prefix + "participants=" + pools.get(event[0]).size());
+            System.out.println(prefix + "teams=" + teams.size());
+            System.out.println(prefix + "unassigned=" + result.getUnassigned().size());
+            System.out.printf(Locale.ROOT, "%sskill_range=%.4f%n", prefix, stats.getRange());
+            System.out.println(prefix + "wait_ms=" + result.getWaitMillis());
+            System.out.println(prefix + "run_ms=" + result.getRunMillis());
+        }
+        System.out.println("events_failed=" + failed);
+        System.out.printf(Locale.ROOT, "events_per_min=%.2f%n", eventsPerMinute);
+        System.out.printf(Locale.ROOT, "total_ms=%.3f%n", (System.nanoTime() - t0) / 1e6);
+        saved &= finishProfile();
+
+        if (!saved) {
+            System.err.println("error=failed to write event output");
+            return 1;
+        }
+        return formed == 0 ? 3 : 0;
+    }
+
+    // formed_teams.csv + "spring" -> formed_teams-spring.csv
+    private static String withSuffix(String path, String suffix) {
+        int dot = path.lastIndexOf('.');
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar));
+        if (dot <= slash + 1) return path + "-" + suffix;
+        return path.substring(0, dot) + "-" + suffix + path.substring(dot);
+    }
+
+    // Spawned workers live only for this run; listed ones are left running
+    private List<Team> formWithWorkers(List<Participant> participants) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        if (workerList != null) {
+            addresses.addAll(FormationCoordinator.parseAddresses(workerList));
+        }
+        List<Process> spawned = new ArrayList<>();
+        try {
+            if (spawnWorkers > 0) {
+                int each = Math.max(1, threads / spawnWorkers);
+                spawned = FormationCoordinator.spawnLocalWorkers(spawnWorkers, each, addresses);
+            }
+            FormationCoordinator coordinator = new FormationCoordinator(participants, teamSize, addresses);
+            coordinator.setRules(rules);
+            coordinator.setEngine(engine);
+            coordinator.setLocalThreads(threads);
+            if (seed != null) {
+                coordinator.setSeed(seed);
+            }
+            List<Team> teams = coordinator.formTeams();
+            System.out.println("workers=" + addresses.size());
+            System.out.println("workers_failed=" + coordinator.getFailedWorkers());
+            System.out.println("leftover_teams=" + coordinator.getLeftoverTeams());
+            System.out.println("max_worker_ms=" + coordinator.getMaxWorkerMillis());
+            return teams;
+        } catch (IOException e) {
+            System.err.println("error=cannot start workers: " + e.getMessage());
+            return null;
+        } finally {
+            spawned.forEach(Process::destroy);
+        }
+    }
+
+    private List<Team> formSnake(List<Participant> participants, PairHistory history) {
+        SnakeDraftEngine draft = new SnakeDraftEngine(participants, teamSize);
+        draft.setRules(rules);
+        draft.setPairHistory(history);
+        if (seed != null) {
+            draft.setSeed(seed);
+        }
+        return draft.formTeams();
+    }
+
+    private TeamBuilder quietBuilder(List<Participant> participants) {
+        TeamBuilder builder = new TeamBuilder(participants, teamSize);
+        builder.setMaxThreads(threads);
+        builder.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+        builder.setRules(rules);
+        return builder;
+    }
+
+    private boolean startProfile() {
+        if (profile || jfr != null) {
+            profiler = new FormationProfiler();
+            if (jfr != null) {
+                try {
+                    profiler.startRecording(jfr);
+                } catch (IOException e) {
+                    System.err.println("error=cannot start JFR recording: " + e.getMessage());
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void phase(String name) {
+        if (profiler != null) profiler.phase(name);
+    }
+
+    private boolean finishProfile() {
+        if (profiler == null) return true;
+        try {
+            profiler.finish();
+        } catch (IOException e) {
+            System.err.println("error=failed to write JFR recording " + jfr + ": " + e.getMessage());
+            return false;
+        } finally {
+            profiler.print(System.out);
+        }
+        return true;
+    }
+
+    // Pairs in this formation that already shared a team in an earlier run
+    private static int countRepeatPairs(PairHistory history, List<Team> teams) {
+        int repeats = 0;
+        for (Team t : teams) {
+            List<Participant> m = t.getMembers();
+            for (int i = 0; i < m.size(); i++) {
+                for (int j = i + 1; j < m.size(); j++) {
+                    if (history.contains(m.get(i).getId(), m.get(j).getId())) repeats++;
+                }
+            }
+        }
+        return repeats;
+    }
+
+    // Answered from the run index; only the log records of the listed runs are read
+    private int printHistory() {
+        RunStore store = RunStore.getDefault();
+        List<long[]> entries = store.teamsOf(historyOf);
+        System.out.println("participant=" + historyOf);
+        System.out.println("runs=" + entries.size());
+        for (long[] e : entries) {
+            RunStore.Run run = store.getRun((int) e[0]);
+            try {
+                System.out.println("run=" + e[0] + " team=" + e[1] + " team_size=" + run.getTeamSize()
+                        + " seed=" + (run.getSeed() == null ? "" : run.getSeed())
+                        + String.format(Locale.ROOT, " skill_range=%.4f", run.getSkillRange())
+                        + " members=" + String.join(";", store.membersOf((int) e[0], (int) e[1])));
+            } catch (IOException ex) {
+                System.err.println("error=failed to read run " + e[0] + ": " + ex.getMessage());
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private boolean writeReport(QualityReport quality) {
+        try {
+            quality.write(report);
+            return true;
+        } catch (IOException e) {
+            System.err.println("error=failed to write report " + report + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void printFeasibility() {
+        System.out.println("upper_bound=" + feasibility.getUpperBound());
+        System.out.println("binding_constraint=" + feasibility.getBindingConstraint());
+    }
+
+    private void printStats(int loaded, List<Team> teams, int unassigned, boolean cacheHit,
+                            long t0, long t1, long t2, long t3, long t4) {
+        TeamStats stats = TeamStats.of(teams);
+        double minAvg = stats.getMinAverage();
+        double maxAvg = stats.getMaxAverage();
+        double overall = stats.getOverallAverage();
+        int assigned = teams.stream().mapToInt(t -> t.getMembers().size()).sum();
+
+        System.out.println("input=" + input);
+        System.out.println("output=" + output);
+        System.out.println("engine=" + engine);
+        System.out.println("team_size=" + teamSize);
+        System.out.println("threads=" + threads);
+        System.out.println("seed=" + (seed == null ? "" : seed));
+        System.out.println("participants=" + loaded);
+        printFeasibility();
+        System.out.println("teams=" + teams.size());
+        System.out.println("assigned=" + assigned);
+        System.out.println("unassigned=" + unassigned);
+        System.out.println("cache_hit=" + cacheHit);
+        System.out.printf(Locale.ROOT, "min_team_avg=%.4f%n", minAvg);
+        System.out.printf(Locale.ROOT, "max_team_avg=%.4f%n", maxAvg);
+        System.out.printf(Locale.ROOT, "overall_avg=%.4f%n", overall);
+        System.out.printf(Locale.ROOT, "skill_range=%.4f%n", maxAvg - minAvg);
+        System.out.printf(Locale.ROOT, "load_ms=%.3f%n", (t1 - t0) / 1e6);
+        System.out.printf(Locale.ROOT, "build_ms=%.3f%n", (t2 - t1) / 1e6);
+        System.out.printf(Locale.ROOT, "optimize_ms=%.3f%n", (t3 - t2) / 1e6);
+        System.out.printf(Locale.ROOT, "save_ms=%.3f%n", (t4 - t3) / 1e6);
+        System.out.printf(Locale.ROOT, "total_ms=%.3f%n", (t4 - t0) / 1e6);
+    }
+
+    private static int parseInt(String key, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number for " + key + ": " + value);
+        }
+    }
+
+    private static long parseLong(String key, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number for " + key + ": " + value);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java teammate.Main [--batch] [--input FILE[,FILE...]] [--team-size N] [--seed N]");
+        System.err.println("                          [--engine " + String.join("|", ENGINES) + "] [--threads N] [--output FILE]");
+        System.err.println("                          [--refine]   run the balance optimizer after the snake engine");
+        System.err.println("                          [--train]   class-data training run, writes nothing (see Main)");
+        System.err.println("                          [--no-cache]   seeded runs are answered from the formation cache otherwise");
+        System.err.println("                          [--stream] [--window N]   write teams while forming (.bin output = binary)");
+        System.err.println("                          [--report FILE]   fairness report (.json, otherwise per-team .csv)");
+        System.err.println("                          [--rules FILE]   composition rules (default: " + TeamRules.DEFAULT_FILE + " if present)");
+        System.err.println("                          [--avoid-repeats]   avoid pairing people who were teamed in earlier runs");
+        System.err.println("                          [--event FILE[:PRIORITY]]...   form several events on one shared pool");
+        System.err.println("                          [--workers HOST:PORT,...] [--spawn-workers N]   form on worker processes");
+        System.err.println("                          [--external] [--chunk N] [--spill-dir DIR]   bounded-memory formation via disk spill");
+        System.err.println("                          [--profile] [--jfr FILE]   per-phase allocation/GC/heap figures, JFR recording");
+        System.err.println("       java teammate.Main --worker [--port N] [--bind ADDR] [--threads N]   formation worker");
+        System.err.println("       java teammate.Main --history ID   teams a participant was on in recorded runs");
+        System.err.println("Exit codes: 0 = teams written, 1 = I/O error, 2 = bad arguments, 3 = no team could be formed");
+    }
+}
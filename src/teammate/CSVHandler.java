@@ -1,6 +1,7 @@
 package teammate;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -8,14 +9,40 @@ public class CSVHandler {
 
     private static final Logger logger = AppLogger.getLogger(CSVHandler.class);
     private static final String DEFAULT_FILE = "participants_sample.csv";
+    private static volatile ImportValidator.Report lastImportReport;
+    private static volatile ParticipantMerge.Result lastMerge;
 
     public static List<Participant> loadParticipants(String filePath) {
 
         logger.info("Attempting to load participants from file: " + filePath);
 
+        List<Participant> list = readRows(filePath);
+        lastImportReport = ImportValidator.validate(list);
+        return list;
+    }
+
+    /**
+     * Loads several registration files into one pool: files are read in parallel, rows
+     * with an email seen earlier are dropped and clashing IDs get fresh ones (see
+     * ParticipantMerge). The merged pool is validated once.
+     */
+    public static List<Participant> loadParticipants(List<String> filePaths) {
+        if (filePaths.size() == 1) return loadParticipants(filePaths.get(0));
+        logger.info("Merging participants from " + filePaths.size() + " files: " + filePaths);
+        ParticipantMerge.Result merged = ParticipantMerge.merge(filePaths);
+        lastMerge = merged;
+        List<Participant> list = merged.getParticipants();
+        lastImportReport = ImportValidator.validate(list);
+        return list;
+    }
+
+    // Parses one file without validation; malformed rows are logged and skipped
+    static List<Participant> readRows(String filePath) {
         List<Participant> list = new ArrayList<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+        // .gz files are decompressed while reading (see CompressedFiles)
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(CompressedFiles.openInput(filePath), StandardCharsets.UTF_8), CompressedFiles.BUFFER)) {
 
             String line = br.readLine(); // Skip header
             int count = 0;
@@ -30,16 +57,7 @@ public class CSVHandler {
                 }
 
                 try {
-                    String id = data[0].trim();
-                    String name = data[1].trim();
-                    String email = data[2].trim();
-                    String game = data[3].trim();
-                    int skill = Integer.parseInt(data[4].trim());
-                    String role = data[5].trim();
-                    int score = Integer.parseInt(data[6].trim());
-                    String type = data[7].trim();
-
-                    list.add(new Participant(id, name, email, game, skill, role, score, type));
+                    list.add(parseFields(data));
                     count++;
 
                 } catch (Exception ex) {
@@ -58,6 +76,38 @@ public class CSVHandler {
         return list;
     }
 
+    // Validation outcome of the most recent loadParticipants call
+    public static ImportValidator.Report getLastImportReport() {
+        return lastImportReport;
+    }
+
+    // Duplicates and re-mapped IDs of the most recent multi-file load
+    public static ParticipantMerge.Result getLastMerge() {
+        return lastMerge;
+    }
+
+    // Parses a single CSV row; used for indexed single-participant reads
+    public static Participant parseLine(String line) {
+        String[] data = line.split(",", -1);
+        if (data.length < 8) {
+            throw new IllegalArgumentException("Malformed participant row: " + line);
+        }
+        return parseFields(data);
+    }
+
+    private static Participant parseFields(String[] data) {
+        String id = data[0].trim();
+        String name = data[1].trim();
+        String email = data[2].trim();
+        String game = data[3].trim();
+        int skill = Integer.parseInt(data[4].trim());
+        String role = data[5].trim();
+        int score = Integer.parseInt(data[6].trim());
+        String type = data[7].trim();
+
+        return new Participant(id, name, email, game, skill, role, score, type);
+    }
+
     public static List<Participant> loadParticipants() {
         logger.info("Loading default file: " + DEFAULT_FILE);
         return loadParticipants(DEFAULT_FILE);
@@ -81,15 +131,23 @@ public class CSVHandler {
         return newId;
     }
 
+    public static String getDefaultFile() {
+        return DEFAULT_FILE;
+    }
+
     public static void saveAllParticipants(List<Participant> participants) {
         logger.info("Saving " + participants.size() + " participants to file: " + DEFAULT_FILE);
+        ParticipantIndex.invalidate(DEFAULT_FILE);
 
         try (PrintWriter writer = new PrintWriter(new FileWriter(DEFAULT_FILE))) {
 
             writer.println("ID,Name,Email,PreferredGame,SkillLevel,PreferredRole,PersonalityScore,PersonalityType");
 
+            StringBuilder line = new StringBuilder(128);
             for (Participant p : participants) {
-                writer.println(p.toCSVLine());
+                line.setLength(0);
+                writer.append(p.appendCSVLine(line));
+                writer.println();
             }
 
             logger.info("Successfully saved participants to " + DEFAULT_FILE);
@@ -100,29 +158,45 @@ public class CSVHandler {
     }
 
     public static void saveFormedTeams(List<Team> teams) {
-        logger.info("Saving formed teams to formed_teams.csv");
-        try (PrintWriter w = new PrintWriter("formed_teams.csv")) {
+        saveFormedTeams(teams, "formed_teams.csv");
+    }
+
+    public static boolean saveFormedTeams(List<Team> teams, String filePath) {
+        logger.info("Saving formed teams to " + filePath);
+        try (PrintWriter w = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(CompressedFiles.openOutput(filePath), StandardCharsets.UTF_8), CompressedFiles.BUFFER))) {
 
             w.println("TeamNumber,MemberID,Name,Email,Game,Role,Skill,Score,PersonalityType");
 
+            StringBuilder line = new StringBuilder(128);
             for (Team team : teams) {
                 for (Participant p : team.getMembers()) {
-                    w.println(team.getTeamNumber() + "," +
-                            p.getId() + "," +
-                            p.getName() + "," +
-                            p.getEmail() + "," +
-                            p.getPreferredGame() + "," +
-                            p.getPreferredRole() + "," +
-                            p.getSkillLevel() + "," +
-                            p.getPersonalityScore() + "," +
-                            p.getPersonalityType());
+                    line.setLength(0);
+                    line.append(team.getTeamNumber()).append(',')
+                            .append(p.getId()).append(',')
+                            .append(p.getName()).append(',');
+                    p.appendEmail(line).append(',')
+                            .append(p.getPreferredGame()).append(',')
+                            .append(p.getPreferredRole()).append(',')
+                            .append(p.getSkillLevel()).append(',')
+                            .append(p.getPersonalityScore()).append(',')
+                            .append(p.getPersonalityType());
+                    w.append(line);
+                    w.println();
                 }
             }
 
+            // PrintWriter swallows write errors, so a full disk would otherwise look like success
+            if (w.checkError()) {
+                logger.severe("Save failed while writing " + filePath);
+                return false;
+            }
             logger.info("Successfully saved formed teams to CSV.");
+            return true;
 
         } catch (Exception e) {
             logger.severe("Save failed: " + e.getMessage());
+            return false;
         }
     }
 }
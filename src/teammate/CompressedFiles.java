@@ -0,0 +1,145 @@
+package teammate;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens participant and team files for streaming, compressed or not depending on the
+ * extension: names ending in .gz are gzip, everything else is plain. Both directions use
+ * 64 KiB buffers.
+ *
+ * Gzip output is compressed in parallel. Written bytes are cut into 1 MiB blocks, each
+ * block is compressed on its own as a complete gzip member on a small worker pool, and the
+ * members are written in order as they finish. Concatenated members are a valid gzip file
+ * (RFC 1952), readable by GZIPInputStream, gunzip and zcat, so there is no second pass and
+ * no temporary file. Only a few blocks are in flight at a time, so memory stays bounded.
+ *
+ * Files that are appended to or read by byte offset while live (ParticipantIndex,
+ * ParticipantTail, RunStore) stay uncompressed.
+ */
+public final class CompressedFiles {
+
+    static final int BUFFER = 1 << 16;
+    private static final int BLOCK = 1 << 20;
+
+    private CompressedFiles() { }
+
+    public static boolean isCompressed(String filePath) {
+        return filePath.toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    /** The file name without a compression suffix, for checks like endsWith(".bin"). */
+    public static String baseName(String filePath) {
+        return isCompressed(filePath) ? filePath.substring(0, filePath.length() - 3) : filePath;
+    }
+
+    public static InputStream openInput(String filePath) throws IOException {
+        InputStream in = new FileInputStream(filePath);
+        try {
+            return isCompressed(filePath)
+                    ? new BufferedInputStream(new GZIPInputStream(in, BUFFER), BUFFER)
+                    : new BufferedInputStream(in, BUFFER);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public static OutputStream openOutput(String filePath) throws IOException {
+        OutputStream out = new FileOutputStream(filePath);
+        if (!isCompressed(filePath)) return new BufferedOutputStream(out, BUFFER);
+        return new ParallelGzipOutputStream(out, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    /** Gzip stream made of independently compressed 1 MiB members. */
+    static final class ParallelGzipOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final ExecutorService workers;
+        private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        private final int maxInFlight;
+        private byte[] block = new byte[BLOCK];
+        private int count;
+        private boolean closed;
+
+        ParallelGzipOutputStream(OutputStream out, int threads) {
+            this.out = new BufferedOutputStream(out, BUFFER);
+            this.maxInFlight = threads * 2;
+            this.workers = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "gzip-block");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == block.length) submitBlock();
+            block[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == block.length) submitBlock();
+                int n = Math.min(len, block.length - count);
+                System.arraycopy(bytes, off, block, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void submitBlock() throws IOException {
+            final byte[] data = block;
+            final int length = count;
+            inFlight.add(workers.submit(() -> compress(data, length)));
+            block = new byte[BLOCK];
+            count = 0;
+            while (inFlight.size() > maxInFlight) writeOldest();
+        }
+
+        private static byte[] compress(byte[] data, int length) throws IOException {
+            ByteArrayOutputStream member = new ByteArrayOutputStream(length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(member, BUFFER)) {
+                gzip.write(data, 0, length);
+            }
+            return member.toByteArray();
+        }
+
+        private void writeOldest() throws IOException {
+            try {
+                out.write(inFlight.poll().get());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while compressing");
+            }
+        }
+
+        // Writes finished members only; a partly filled block would become a tiny member
+        @Override
+        public void flush() throws IOException {
+            while (!inFlight.isEmpty() && inFlight.peek().isDone()) writeOldest();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                if (count > 0) submitBlock();
+                while (!inFlight.isEmpty()) writeOldest();
+            } finally {
+                workers.shutdownNow();
+                out.close();
+            }
+        }
+    }
+}
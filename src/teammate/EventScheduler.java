@@ -0,0 +1,258 @@
+package teammate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Runs team formation for several events at once on one bounded set of worker threads,
+ * instead of every TeamBuilder starting its own pool sized to the machine.
+ *
+ * Each event gets a lane that its TeamBuilder submits team jobs to. Workers pick the next
+ * job by stride scheduling: every lane has a pass value that advances by STRIDE / priority
+ * for each job it gets, and the lane with the lowest pass goes next. An event with priority
+ * 3 therefore gets three jobs for every one of a priority 1 event, and a large event cannot
+ * starve a small one queued behind it. A lane that was idle rejoins at the current pass, so
+ * it does not collect credit while it has nothing to run.
+ *
+ * The balance optimizer also runs as a job in the event's lane, so all formation CPU work
+ * stays inside the worker pool. Only the per-event coordination, which mostly waits for
+ * its jobs, runs on virtual threads.
+ */
+public class EventScheduler implements AutoCloseable {
+
+    private static final Logger logger = AppLogger.getLogger(EventScheduler.class);
+
+    public static final int MIN_PRIORITY = 1;
+    public static final int MAX_PRIORITY = 10;
+
+    private static final long STRIDE = 1L << 20;
+
+    /** Outcome of one event's formation. */
+    public static class EventResult {
+        private final String name;
+        private final int priority;
+        private final List<Team> teams;
+        private final List<Participant> unassigned;
+        private final long waitMillis;
+        private final long runMillis;
+
+        EventResult(String name, int priority, List<Team> teams, List<Participant> unassigned,
+                    long waitMillis, long runMillis) {
+            this.name = name;
+            this.priority = priority;
+            this.teams = teams;
+            this.unassigned = unassigned;
+            this.waitMillis = waitMillis;
+            this.runMillis = runMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public List<Team> getTeams() {
+            return teams;
+        }
+
+        public List<Participant> getUnassigned() {
+            return unassigned;
+        }
+
+        /** Time from submission until the first job of the event started. */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        /** Time from the first job starting until the event was optimized. */
+        public long getRunMillis() {
+            return runMillis;
+        }
+    }
+
+    /** Per-event job queue; the TeamBuilder sees it as its executor. */
+    private final class Lane implements Executor {
+        final String name;
+        final int priority;
+        final ArrayDeque<Runnable> jobs = new ArrayDeque<>();
+        long pass;
+        volatile long firstStart;
+
+        Lane(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public void execute(Runnable job) {
+            enqueue(this, job);
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition jobsReady = lock.newCondition();
+    private final List<Lane> active = new ArrayList<>();
+    private final Thread[] workers;
+    private final ExecutorService coordinators = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private long currentPass;
+    private boolean closed;
+    private volatile long firstSubmit;
+
+    public EventScheduler(int workerCount) {
+        if (workerCount < 1) throw new IllegalArgumentException("at least one worker is needed");
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "formation-worker-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        logger.info("Event scheduler started with " + workerCount + " workers.");
+    }
+
+    /**
+     * Queues formation and optimization for one event. The builder should be fully
+     * configured (rules, seed, output); its executor is replaced by the event's lane.
+     */
+    public CompletableFuture<EventResult> submit(String name, int priority, TeamBuilder builder) {
+        if (priority < MIN_PRIORITY || priority > MAX_PRIORITY) {
+            throw new IllegalArgumentException("priority must be between " + MIN_PRIORITY + " and " + MAX_PRIORITY);
+        }
+        lock.lock();
+        try {
+            if (closed) throw new RejectedExecutionException("scheduler is closed");
+            if (firstSubmit == 0) firstSubmit = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+
+        Lane lane = new Lane(name, priority);
+        builder.setExecutor(lane);
+        long submitted = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                builder.formTeams();
+                CompletableFuture.runAsync(builder::optimizeBalance, lane).join();
+                long done = System.nanoTime();
+                long started = lane.firstStart == 0 ? done : lane.firstStart;
+                completed.incrementAndGet();
+                logger.info("Event " + name + " formed " + builder.getFormedTeams().size() + " teams.");
+                return new EventResult(name, priority, builder.getFormedTeams(), builder.getUnassignedParticipants(),
+                        (started - submitted) / 1_000_000, (done - started) / 1_000_000);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                logger.severe("Event " + name + " failed: " + e.getMessage());
+                throw e;
+            }
+        }, coordinators);
+    }
+
+    private void enqueue(Lane lane, Runnable job) {
+        lock.lock();
+        try {
+            // close() waits for every event first, so nothing legitimate arrives afterwards
+            if (closed) throw new RejectedExecutionException("scheduler is closed");
+            if (lane.jobs.isEmpty()) {
+                lane.pass = Math.max(lane.pass, currentPass);
+                active.add(lane);
+            }
+            lane.jobs.add(job);
+            jobsReady.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lowest pass first; ties go to the lane that became active first
+    private Runnable next() throws InterruptedException {
+        lock.lock();
+        try {
+            while (active.isEmpty()) {
+                if (closed) return null;
+                jobsReady.await();
+            }
+            Lane lane = active.get(0);
+            for (Lane candidate : active) {
+                if (candidate.pass < lane.pass) lane = candidate;
+            }
+            Runnable job = lane.jobs.poll();
+            currentPass = lane.pass;
+            lane.pass += STRIDE / lane.priority;
+            if (lane.jobs.isEmpty()) active.remove(lane);
+            if (lane.firstStart == 0) lane.firstStart = System.nanoTime();
+            return job;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        try {
+            Runnable job;
+            while ((job = next()) != null) {
+                try {
+                    job.run();
+                } catch (RuntimeException e) {
+                    logger.severe("Formation job failed: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    public int getCompletedEvents() {
+        return completed.get();
+    }
+
+    public int getFailedEvents() {
+        return failed.get();
+    }
+
+    /** Completed events per minute since the first submission. */
+    public double getEventsPerMinute() {
+        long start = firstSubmit;
+        if (start == 0) return 0;
+        double minutes = (System.nanoTime() - start) / 60e9;
+        return minutes <= 0 ? 0 : completed.get() / minutes;
+    }
+
+    /** Lets submitted events finish, then stops the workers. */
+    @Override
+    public void close() {
+        coordinators.shutdown();
+        try {
+            coordinators.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            closed = true;
+            jobsReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        logger.info("Event scheduler stopped after " + completed.get() + " events.");
+    }
+}
@@ -0,0 +1,348 @@
+package teammate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Bounded-memory formation for pools that do not fit in the heap ("--external" in batch mode).
+ *
+ * Only one chunk of participants is ever in memory; everything else lives in spill files:
+ *
+ *   1. bucket  The input is streamed once and every row passing import validation is
+ *              appended, in a compact binary record, to a bucket file for its personality
+ *              type, game and skill level. Reading the buckets back in key order is a
+ *              counting sort of the whole pool. 64-bit hashes of each row's ID and email go
+ *              to hash-partitioned key files.
+ *   2. dedup   Each key file is small enough to check in memory. A row whose ID or email
+ *              already appeared on an earlier valid row is marked in a bit set over row
+ *              numbers, so duplicates are dropped across the whole file, not just within a
+ *              chunk.
+ *   3. deal    The buckets are read in that order and their records dealt round-robin into
+ *              as many chunk files as the chunk size requires, so every chunk gets the same
+ *              share of each type / game / skill combination and a chunk's teams come out
+ *              as strong as any other chunk's.
+ *   4. form    Each chunk is loaded and formed with the snake draft (optionally refined),
+ *              and its teams go straight to the sink with global team numbers.
+ *              Leftovers are carried into the next chunk, at most one chunk's worth.
+ *
+ * Heap use is therefore about two chunks of participants plus the open file buffers,
+ * whatever the pool size. Spill files are deleted as soon as they have been read.
+ */
+public class ExternalFormation {
+
+    private static final Logger logger = AppLogger.getLogger(ExternalFormation.class);
+
+    private static final String[] TYPES = {"Leader", "Balanced", "Thinker"};
+    private static final int TYPE_SLOTS = TYPES.length + 1;
+    private static final int GAME_SLOTS = Participant.GAMES.size() + 1;
+    private static final int SKILL_SLOTS = 11;
+    private static final int BUCKETS = TYPE_SLOTS * GAME_SLOTS * SKILL_SLOTS;
+    private static final int SPILL_BUFFER = 1 << 14;
+    private static final int KEY_PARTITIONS = 64;
+
+    private final int teamSize;
+    private final TeamRules rules;
+    private final int chunkSize;
+    private final File spillParent;
+    private Long seed = null;
+    private boolean refine = false;
+
+    private long rowsRead;
+    private long rejected;
+    private long duplicates;
+    private long unassigned;
+    private long teamCount;
+    private int chunks;
+    private long spillBytes;
+
+    public ExternalFormation(int teamSize, TeamRules rules, int chunkSize, File spillParent) {
+        if (chunkSize < teamSize * 10) throw new IllegalArgumentException("chunk size must be at least " + teamSize * 10);
+        this.teamSize = teamSize;
+        this.rules = rules;
+        this.chunkSize = chunkSize;
+        this.spillParent = spillParent;
+    }
+
+    // Chunk k is drafted with seed + k
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setRefine(boolean refine) {
+        this.refine = refine;
+    }
+
+    /** Forms teams from the input file and hands each one to the sink; returns the team count. */
+    public long run(String inputFile, Consumer<Team> sink) throws IOException {
+        Path dir = spillParent == null
+                ? Files.createTempDirectory("teammate-spill-")
+                : Files.createTempDirectory(spillParent.toPath(), "teammate-spill-");
+        try {
+            long[] bucketSizes = bucket(inputFile, dir);
+            BitSet dropped = findDuplicates(dir);
+            duplicates = dropped.cardinality();
+            chunks = (int) Math.max(1, (rowsRead - duplicates + chunkSize - 1) / chunkSize);
+            long[] chunkSizes = deal(dir, bucketSizes, dropped);
+            form(dir, chunkSizes, sink);
+        } finally {
+            deleteTree(dir);
+        }
+        logger.info("External formation: " + rowsRead + " rows, " + chunks + " chunks, " + teamCount
+                + " teams, " + unassigned + " unassigned, " + (spillBytes >> 20) + " MB spilled.");
+        return teamCount;
+    }
+
+    private long[] bucket(String inputFile, Path dir) throws IOException {
+        DataOutputStream[] buckets = new DataOutputStream[BUCKETS];
+        DataOutputStream[] keys = new DataOutputStream[KEY_PARTITIONS];
+        long[] sizes = new long[BUCKETS];
+        for (int k = 0; k < KEY_PARTITIONS; k++) {
+            keys[k] = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(dir.resolve("keys-" + k).toFile()), SPILL_BUFFER));
+        }
+        ImportValidator.Report report = new ImportValidator.Report();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(CompressedFiles.openInput(inputFile), StandardCharsets.UTF_8), CompressedFiles.BUFFER)) {
+            String line = in.readLine(); // header
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Participant p;
+                try {
+                    p = CSVHandler.parseLine(line);
+                } catch (RuntimeException e) {
+                    rejected++;
+                    continue;
+                }
+                // Validated before it gets a row number, so a rejected row never claims an ID or email
+                byte verdict = ImportValidator.verdict(p);
+                report.record(verdict, p.getId());
+                if (ImportValidator.isRejected(verdict)) continue;
+                if (verdict == ImportValidator.RECLASSIFIED) p = ImportValidator.reclassified(p);
+
+                int b = bucketOf(p);
+                if (buckets[b] == null) {
+                    buckets[b] = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(dir.resolve("bucket-" + b).toFile()), SPILL_BUFFER));
+                }
+                if (rowsRead == Integer.MAX_VALUE) throw new IOException("more rows than external formation supports");
+                int row = (int) rowsRead++;
+                buckets[b].writeInt(row);
+                writeRecord(buckets[b], p);
+                sizes[b]++;
+                // ID and email live in separate hash domains
+                writeKey(keys, FormationCache.hash("id:" + p.getId()), row);
+                String email = p.getEmailKey();
+                if (!email.isEmpty()) writeKey(keys, FormationCache.hash("email:" + email), row);
+            }
+            rejected += report.rejected();
+            ImportValidator.log(report);
+        } finally {
+            for (DataOutputStream out : buckets) {
+                if (out == null) continue;
+                spillBytes += out.size();
+                out.close();
+            }
+            for (DataOutputStream out : keys) {
+                spillBytes += out.size();
+                out.close();
+            }
+        }
+        return sizes;
+    }
+
+    private static void writeKey(DataOutputStream[] keys, long hash, int row) throws IOException {
+        DataOutputStream out = keys[(int) (hash >>> 58) % KEY_PARTITIONS];
+        out.writeLong(hash);
+        out.writeInt(row);
+    }
+
+    // Rows are written in file order, so within a key file the first entry of a hash is its earliest row
+    private BitSet findDuplicates(Path dir) throws IOException {
+        BitSet dropped = new BitSet((int) rowsRead);
+        for (int k = 0; k < KEY_PARTITIONS; k++) {
+            File file = dir.resolve("keys-" + k).toFile();
+            int n = (int) (file.length() / 12);
+            long[] hashes = new long[n];
+            int[] rows = new int[n];
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), SPILL_BUFFER))) {
+                for (int i = 0; i < n; i++) {
+                    hashes[i] = in.readLong();
+                    rows[i] = in.readInt();
+                }
+            }
+            Files.delete(file.toPath());
+
+            long[] sorted = hashes.clone();
+            Arrays.sort(sorted);
+            Set<Long> repeated = new HashSet<>();
+            for (int i = 1; i < n; i++) {
+                if (sorted[i] == sorted[i - 1]) repeated.add(sorted[i]);
+            }
+            if (repeated.isEmpty()) continue;
+            Set<Long> first = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                if (repeated.contains(hashes[i]) && !first.add(hashes[i])) dropped.set(rows[i]);
+            }
+        }
+        if (!dropped.isEmpty()) {
+            logger.warning("Dropped " + dropped.cardinality() + " rows repeating the ID or email of an earlier row.");
+        }
+        return dropped;
+    }
+
+    // Key order is type, then game, then skill, so reading buckets 0..n is a sort by that key
+    private static int bucketOf(Participant p) {
+        int type = TYPES.length;
+        for (int t = 0; t < TYPES.length; t++) {
+            if (TYPES[t].equalsIgnoreCase(p.getPersonalityType())) type = t;
+        }
+        int game = Participant.GAMES.size();
+        for (int g = 0; g < Participant.GAMES.size(); g++) {
+            if (Participant.GAMES.get(g).equalsIgnoreCase(p.getPreferredGame())) game = g;
+        }
+        int skill = Math.max(0, Math.min(SKILL_SLOTS - 1, p.getSkillLevel()));
+        return (type * GAME_SLOTS + game) * SKILL_SLOTS + skill;
+    }
+
+    private long[] deal(Path dir, long[] bucketSizes, BitSet dropped) throws IOException {
+        DataOutputStream[] outs = new DataOutputStream[chunks];
+        long[] sizes = new long[chunks];
+        try {
+            for (int k = 0; k < chunks; k++) {
+                outs[k] = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(dir.resolve("chunk-" + k).toFile()), SPILL_BUFFER));
+            }
+            long next = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                if (bucketSizes[b] == 0) continue;
+                File file = dir.resolve("bucket-" + b).toFile();
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), SPILL_BUFFER))) {
+                    for (long i = 0; i < bucketSizes[b]; i++) {
+                        int row = in.readInt();
+                        Participant p = readRecord(in);
+                        if (dropped.get(row)) continue;
+                        int k = (int) (next++ % chunks);
+                        writeRecord(outs[k], p);
+                        sizes[k]++;
+                    }
+                }
+                Files.delete(file.toPath());
+            }
+        } finally {
+            for (DataOutputStream out : outs) {
+                if (out == null) continue;
+                spillBytes += out.size();
+                out.close();
+            }
+        }
+        return sizes;
+    }
+
+    private void form(Path dir, long[] chunkSizes, Consumer<Team> sink) throws IOException {
+        List<Participant> carry = new ArrayList<>();
+        int teamNumber = 0;
+        for (int k = 0; k < chunks; k++) {
+            File file = dir.resolve("chunk-" + k).toFile();
+            List<Participant> pool = new ArrayList<>((int) chunkSizes[k] + carry.size());
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), SPILL_BUFFER))) {
+                for (long i = 0; i < chunkSizes[k]; i++) pool.add(readRecord(in));
+            }
+            Files.delete(file.toPath());
+            pool.addAll(carry);
+
+            SnakeDraftEngine draft = new SnakeDraftEngine(pool, teamSize);
+            draft.setRules(rules);
+            if (seed != null) draft.setSeed(seed + k);
+            List<Team> teams = draft.formTeams();
+            if (refine) {
+                TeamBuilder builder = new TeamBuilder(List.of(), teamSize);
+                builder.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+                builder.setRules(rules);
+                teams = builder.refine(teams);
+            }
+            for (Team formed : teams) {
+                Team team = new Team(++teamNumber);
+                for (Participant p : formed.getMembers()) team.addMember(p);
+                sink.accept(team);
+            }
+            teamCount += teams.size();
+
+            // Leftovers may fit with the next chunk; beyond one chunk's worth they stay unassigned
+            carry = draft.getUnassignedParticipants();
+            if (k == chunks - 1 || carry.size() > chunkSize) {
+                int keep = k == chunks - 1 ? 0 : chunkSize;
+                unassigned += carry.size() - keep;
+                carry = new ArrayList<>(carry.subList(0, keep));
+            }
+            logger.info("Chunk " + (k + 1) + "/" + chunks + ": " + teams.size() + " teams, "
+                    + carry.size() + " carried over.");
+        }
+    }
+
+    // Same fields as a CSV row, without the text formatting
+    private static void writeRecord(DataOutputStream out, Participant p) throws IOException {
+        out.writeUTF(p.getId());
+        out.writeUTF(p.getName());
+        out.writeUTF(p.getEmail());
+        out.writeUTF(p.getPreferredGame());
+        out.writeUTF(p.getPreferredRole());
+        out.writeInt(p.getSkillLevel());
+        out.writeInt(p.getPersonalityScore());
+        out.writeUTF(p.getPersonalityType());
+    }
+
+    private static Participant readRecord(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        String name = in.readUTF();
+        String email = in.readUTF();
+        String game = in.readUTF();
+        String role = in.readUTF();
+        int skill = in.readInt();
+        int score = in.readInt();
+        String type = in.readUTF();
+        return new Participant(id, name, email, game, skill, role, score, type);
+    }
+
+    private static void deleteTree(Path dir) {
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (!f.delete()) logger.warning("Could not delete spill file " + f);
+            }
+        }
+        if (!dir.toFile().delete()) logger.warning("Could not delete spill directory " + dir);
+    }
+
+    /** Rows that passed import validation, duplicates included. */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /** Rows dropped because an earlier row had the same ID or email. */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /** Rows that could not be parsed or failed import validation. */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getUnassigned() {
+        return unassigned;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    /** Bytes written to spill files over both passes. */
+    public long getSpillBytes() {
+        return spillBytes;
+    }
+}
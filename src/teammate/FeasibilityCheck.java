@@ -0,0 +1,131 @@
+package teammate;
+
+import java.util.*;
+
+/**
+ * Upper bound on how many valid teams a pool can produce, computed from counts alone
+ * before any formation thread is started.
+ *
+ * Each rule gives its own bound: the pool size, every personality minimum (e.g. one
+ * Leader per team), the personality maxima (a team can only be filled from types that
+ * still have room), the per-game limit and the distinct-role requirement. For a limit
+ * such as "at most 2 per game", k teams are possible only if the games together can
+ * supply k * teamSize members when each game contributes at most 2 per team, which is
+ * checked by binary search over k. The smallest bound wins and names the binding
+ * constraint, so the organizer sees why there are not more teams.
+ */
+public class FeasibilityCheck {
+
+    private static final String[] TYPES = {"Leader", "Thinker", "Balanced"};
+
+    public static class Result {
+        private final Map<String, Integer> bounds;
+        private final int upperBound;
+        private final String bindingConstraint;
+
+        Result(Map<String, Integer> bounds) {
+            this.bounds = bounds;
+            String binding = "pool size";
+            int best = Integer.MAX_VALUE;
+            for (Map.Entry<String, Integer> e : bounds.entrySet()) {
+                if (e.getValue() < best) {
+                    best = e.getValue();
+                    binding = e.getKey();
+                }
+            }
+            this.upperBound = Math.max(0, best);
+            this.bindingConstraint = binding;
+        }
+
+        public int getUpperBound() {
+            return upperBound;
+        }
+
+        public String getBindingConstraint() {
+            return bindingConstraint;
+        }
+
+        /** Bound per constraint, in the order they were checked. */
+        public Map<String, Integer> getBounds() {
+            return Collections.unmodifiableMap(bounds);
+        }
+
+        @Override
+        public String toString() {
+            return "at most " + upperBound + " teams (limited by " + bindingConstraint + ")";
+        }
+    }
+
+    private FeasibilityCheck() { }
+
+    public static Result analyze(List<Participant> pool, int teamSize, TeamRules rules) {
+        int[] types = new int[TYPES.length];
+        Map<String, Integer> games = new HashMap<>();
+        Map<String, Integer> roles = new HashMap<>();
+        for (Participant p : pool) {
+            String type = p.getPersonalityType();
+            for (int t = 0; t < TYPES.length; t++) {
+                if (TYPES[t].equalsIgnoreCase(type)) {
+                    types[t]++;
+                    break;
+                }
+            }
+            games.merge(p.getPreferredGame(), 1, Integer::sum);
+            roles.merge(p.getPreferredRole(), 1, Integer::sum);
+        }
+
+        Map<String, Integer> bounds = new LinkedHashMap<>();
+        int sizeBound = pool.size() / teamSize;
+        bounds.put("pool size", sizeBound);
+
+        for (int t = 0; t < TYPES.length; t++) {
+            int min = rules.minOf(TYPES[t]);
+            if (min > 0) bounds.put(TYPES[t] + "s (" + min + " per team)", types[t] / min);
+        }
+
+        int[] typeCaps = new int[TYPES.length];
+        for (int t = 0; t < TYPES.length; t++) typeCaps[t] = Math.min(rules.maxOf(TYPES[t]), teamSize);
+        bounds.put("personality mix", largestK(sizeBound, types, typeCaps, teamSize));
+
+        if (rules.getMaxPerGame() < teamSize) {
+            int[] counts = values(games);
+            int[] caps = new int[counts.length];
+            Arrays.fill(caps, rules.getMaxPerGame());
+            bounds.put("max " + rules.getMaxPerGame() + " per game", largestK(sizeBound, counts, caps, teamSize));
+        }
+
+        // Every team needs minRoles different roles, so each role supplies at most one of those
+        if (rules.getMinRoles() > 0 && teamSize >= rules.getRolesFromTeamSize()) {
+            int[] counts = values(roles);
+            int[] caps = new int[counts.length];
+            Arrays.fill(caps, 1);
+            bounds.put(rules.getMinRoles() + " distinct roles", largestK(sizeBound, counts, caps, rules.getMinRoles()));
+        }
+
+        return new Result(bounds);
+    }
+
+    // Largest k <= hi with sum(min(count_i, k * cap_i)) >= k * need
+    private static int largestK(int hi, int[] counts, int[] caps, int need) {
+        int lo = 1, best = 0;
+        while (lo <= hi) {
+            int k = (lo + hi) >>> 1;
+            long supply = 0;
+            for (int i = 0; i < counts.length; i++) supply += Math.min(counts[i], (long) k * caps[i]);
+            if (supply >= (long) k * need) {
+                best = k;
+                lo = k + 1;
+            } else {
+                hi = k - 1;
+            }
+        }
+        return best;
+    }
+
+    private static int[] values(Map<String, Integer> map) {
+        int[] out = new int[map.size()];
+        int i = 0;
+        for (int v : map.values()) out[i++] = v;
+        return out;
+    }
+}
@@ -0,0 +1,251 @@
+package teammate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Remembers formation results so that forming the same pool again with the same
+ * team size, seed and engine returns immediately.
+ *
+ * Keys combine an order-independent fingerprint of the participant rows with the
+ * formation parameters. Entries are held in a small LRU map and also written to the
+ * formation_cache directory, one line per team, so they survive restarts. Results are
+ * stored as member IDs, each tagged with a hash of the member's email, and rebuilt into
+ * fresh Team objects on every hit, so callers can modify the returned teams freely.
+ */
+public class FormationCache {
+
+    private static final Logger logger = AppLogger.getLogger(FormationCache.class);
+
+    private static final int MEMORY_ENTRIES = 16;
+    private static final int DISK_ENTRIES = 64;
+    private static final FormationCache DEFAULT = new FormationCache(new File("formation_cache"));
+
+    private final File dir;
+    private final Map<String, List<String[]>> memory = new LinkedHashMap<>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String[]>> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+
+    public FormationCache(File dir) {
+        this.dir = dir;
+    }
+
+    public static FormationCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 64-bit hash of every row, summed so row order does not matter, plus the row count.
+     */
+    public static String fingerprint(List<Participant> pool) {
+        long sum = 0;
+        long xor = 0;
+        StringBuilder line = new StringBuilder(128);
+        for (Participant p : pool) {
+            line.setLength(0);
+            long h = mix(fnv1a(p.appendCSVLine(line)));
+            sum += h;
+            xor ^= Long.rotateLeft(h, 17);
+        }
+        return pool.size() + "-" + Long.toHexString(sum) + Long.toHexString(xor);
+    }
+
+    public static String key(String fingerprint, int teamSize, Long seed, String engine) {
+        return fingerprint + "_t" + teamSize + "_s" + (seed == null ? "none" : seed) + "_" + engine;
+    }
+
+    // "P001:3f9a..." - every event numbers from P001, so the ID alone does not say who it is
+    private static String memberKey(Participant p) {
+        return p.getId() + ":" + Long.toHexString(mix(fnv1a(p.getEmailKey())));
+    }
+
+    private static String idOf(String memberKey) {
+        int colon = memberKey.indexOf(':');
+        return colon < 0 ? memberKey : memberKey.substring(0, colon);
+    }
+
+    // 64-bit hash of any text, also used by ExternalFormation for duplicate detection
+    static long hash(CharSequence s) {
+        return mix(fnv1a(s));
+    }
+
+    private static long fnv1a(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /** Returns the cached teams rebuilt from the given pool, or null on a miss. */
+    public synchronized List<Team> get(String key, List<Participant> pool) {
+        List<String[]> assignment = memory.get(key);
+        if (assignment == null) {
+            assignment = readFromDisk(key);
+            if (assignment == null) {
+                logger.fine("Formation cache miss: " + key);
+                return null;
+            }
+            memory.put(key, assignment);
+        }
+
+        Map<String, Participant> byId = new HashMap<>(pool.size() * 2);
+        for (Participant p : pool) byId.put(p.getId(), p);
+
+        List<Team> teams = new ArrayList<>(assignment.size());
+        for (String[] row : assignment) {
+            Team team = new Team(Integer.parseInt(row[0]));
+            for (int i = 1; i < row.length; i++) {
+                Participant p = byId.get(idOf(row[i]));
+                if (p == null) {
+                    // Fingerprint collision or edited file; treat as a miss
+                    logger.warning("Cached formation references unknown participant " + row[i]);
+                    memory.remove(key);
+                    return null;
+                }
+                team.addMember(p);
+            }
+            teams.add(team);
+        }
+        logger.info("Formation cache hit: " + key + " (" + teams.size() + " teams)");
+        return teams;
+    }
+
+    /**
+     * Most recent cached formation with the same parameters but any pool, reduced to the
+     * members still present in the given pool. A member counts as present only if both the
+     * ID and the email match, so another event's pool that reuses the same P-numbers is
+     * not mistaken for a roster change. Returns null if fewer than minOverlap of
+     * its members remain, since repairing it would then cost more than forming afresh.
+     * Teams may come back short; TeamBuilder.reformTeams refills them.
+     */
+    public synchronized List<Team> nearest(List<Participant> pool, int teamSize, Long seed, String engine,
+                                           double minOverlap) {
+        String suffix = key("", teamSize, seed, engine);
+        List<String[]> assignment = null;
+
+        // Memory map iterates least recently used first, so keep the last match
+        for (Map.Entry<String, List<String[]>> e : memory.entrySet()) {
+            if (e.getKey().endsWith(suffix)) assignment = e.getValue();
+        }
+        if (assignment == null) {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(suffix + ".teams"));
+            if (files != null && files.length > 0) {
+                File latest = Collections.max(Arrays.asList(files), Comparator.comparingLong(File::lastModified));
+                String name = latest.getName();
+                assignment = readFromDisk(name.substring(0, name.length() - ".teams".length()));
+            }
+        }
+        if (assignment == null) return null;
+
+        Map<String, Participant> byKey = new HashMap<>(pool.size() * 2);
+        for (Participant p : pool) byKey.put(memberKey(p), p);
+
+        List<Team> teams = new ArrayList<>(assignment.size());
+        int total = 0;
+        int present = 0;
+        for (String[] row : assignment) {
+            Team team = new Team(Integer.parseInt(row[0]));
+            for (int i = 1; i < row.length; i++) {
+                total++;
+                // Entries written before emails were recorded carry no hash and never match
+                Participant p = byKey.get(row[i]);
+                if (p != null) {
+                    team.addMember(p);
+                    present++;
+                }
+            }
+            teams.add(team);
+        }
+
+        if (total == 0 || present < total * minOverlap) return null;
+        logger.info("Nearest cached formation keeps " + present + " of " + total + " members.");
+        return teams;
+    }
+
+    public synchronized void put(String key, List<Team> teams) {
+        List<String[]> assignment = new ArrayList<>(teams.size());
+        for (Team team : teams) {
+            String[] row = new String[team.getMembers().size() + 1];
+            row[0] = String.valueOf(team.getTeamNumber());
+            for (int i = 0; i < team.getMembers().size(); i++) {
+                row[i + 1] = memberKey(team.getMembers().get(i));
+            }
+            assignment.add(row);
+        }
+        memory.put(key, assignment);
+        writeToDisk(key, assignment);
+    }
+
+    /** Participants of the pool that are not in any of the given teams. */
+    public static List<Participant> unassigned(List<Participant> pool, List<Team> teams) {
+        Set<String> assigned = new HashSet<>();
+        for (Team t : teams) {
+            for (Participant p : t.getMembers()) assigned.add(p.getId());
+        }
+        List<Participant> leftover = new ArrayList<>();
+        for (Participant p : pool) {
+            if (!assigned.contains(p.getId())) leftover.add(p);
+        }
+        return leftover;
+    }
+
+    private List<String[]> readFromDisk(String key) {
+        File file = new File(dir, key + ".teams");
+        if (!file.exists()) return null;
+
+        List<String[]> assignment = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) assignment.add(line.split(","));
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return assignment;
+        } catch (IOException e) {
+            logger.warning("Could not read cached formation " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, List<String[]> assignment) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            logger.warning("Could not create cache directory " + dir);
+            return;
+        }
+        File file = new File(dir, key + ".teams");
+        try (PrintWriter w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (String[] row : assignment) {
+                w.println(String.join(",", row));
+            }
+        } catch (IOException e) {
+            logger.warning("Could not write cached formation " + file + ": " + e.getMessage());
+            return;
+        }
+        evictOldFiles();
+    }
+
+    private void evictOldFiles() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".teams"));
+        if (files == null || files.length <= DISK_ENTRIES) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - DISK_ENTRIES; i++) {
+            if (!files[i].delete()) {
+                logger.warning("Could not evict cached formation " + files[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package teammate;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Splits one event over several FormationWorker processes so no single heap has to form
+ * the whole pool.
+ *
+ * The pool is sorted by personality type and skill and dealt round-robin into one partition
+ * per worker, so every partition gets the same mix of Leaders, Thinkers and skill levels
+ * and can form about the same share of teams. Partitions are sent to all workers at once;
+ * each worker forms and balances its teams and returns them with its leftovers. The
+ * coordinator then forms what it can from the combined leftovers and runs the balance
+ * optimizer over all teams, since each worker only balanced its own share.
+ *
+ * A worker that cannot be reached or fails has its partition formed locally instead, so a
+ * lost worker slows the run down but does not lose participants.
+ */
+public class FormationCoordinator {
+
+    private static final Logger logger = AppLogger.getLogger(FormationCoordinator.class);
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+
+    private final List<Participant> pool;
+    private final int teamSize;
+    private final List<InetSocketAddress> workers;
+    private TeamRules rules = TeamRules.getDefault();
+    private String engine = "concurrent";
+    private Long seed = null;
+    private int localThreads = Runtime.getRuntime().availableProcessors();
+
+    private final List<Participant> unassigned = new ArrayList<>();
+    private int failedWorkers;
+    private int leftoverTeams;
+    private long maxWorkerMillis;
+
+    public FormationCoordinator(List<Participant> participants, int teamSize, List<InetSocketAddress> workers) {
+        if (workers.isEmpty()) throw new IllegalArgumentException("at least one worker address is needed");
+        this.pool = participants;
+        this.teamSize = teamSize;
+        this.workers = workers;
+    }
+
+    public void setRules(TeamRules rules) {
+        this.rules = rules;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    // Partition i is formed with seed + i, so a seeded run is repeatable for the same worker count
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    // Threads for the local fallback, leftover formation and the global balancing pass
+    public void setLocalThreads(int threads) {
+        this.localThreads = Math.max(1, threads);
+    }
+
+    /** Host:port list, comma separated; a bare port means localhost. */
+    public static List<InetSocketAddress> parseAddresses(String list) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String part : list.split(",")) {
+            String entry = part.trim();
+            if (entry.isEmpty()) continue;
+            int colon = entry.lastIndexOf(':');
+            String host = colon < 0 ? "localhost" : entry.substring(0, colon);
+            try {
+                addresses.add(new InetSocketAddress(host, Integer.parseInt(entry.substring(colon + 1))));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("invalid worker address " + entry);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Starts worker JVMs on this host with the current java binary and class path.
+     * Each one reports its port on stdout; the caller destroys the processes afterwards.
+     */
+    public static List<Process> spawnLocalWorkers(int count, int threadsEach, List<InetSocketAddress> addresses)
+            throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        "teammate.Main", "--worker", "--threads", String.valueOf(threadsEach));
+                builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+                processes.add(builder.start());
+            }
+            for (Process process : processes) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                String line = reader.readLine();
+                if (line == null || !line.startsWith("worker_port=")) {
+                    throw new IOException("worker did not start: " + line);
+                }
+                addresses.add(new InetSocketAddress("localhost", Integer.parseInt(line.substring("worker_port=".length()))));
+            }
+        } catch (IOException | RuntimeException e) {
+            processes.forEach(Process::destroy);
+            throw e;
+        }
+        logger.info("Started " + count + " local formation workers: " + addresses);
+        return processes;
+    }
+
+    public List<Team> formTeams() {
+        unassigned.clear();
+        failedWorkers = 0;
+        List<List<Participant>> partitions = partition();
+
+        ExecutorService senders = Executors.newFixedThreadPool(partitions.size());
+        List<Future<FormationWorker.Result>> pending = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            final int n = i;
+            pending.add(senders.submit(() -> send(workers.get(n), partitions.get(n), n)));
+        }
+
+        List<Team> teams = new ArrayList<>();
+        List<Participant> leftovers = new ArrayList<>();
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                List<Participant> members = partitions.get(i);
+                FormationWorker.Result result;
+                try {
+                    result = pending.get(i).get();
+                } catch (ExecutionException e) {
+                    failedWorkers++;
+                    logger.warning("Worker " + workers.get(i) + " failed (" + e.getCause().getMessage()
+                            + "), forming its partition locally.");
+                    result = formLocally(members, i);
+                }
+                maxWorkerMillis = Math.max(maxWorkerMillis, result.formMillis);
+                for (int[] positions : result.teams) {
+                    Team team = new Team(teams.size() + 1);
+                    for (int position : positions) team.addMember(members.get(position));
+                    teams.add(team);
+                }
+                for (int position : result.leftovers) leftovers.add(members.get(position));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for workers", e);
+        } finally {
+            senders.shutdownNow();
+        }
+
+        // Leftovers of different partitions may still fit together
+        leftoverTeams = 0;
+        if (leftovers.size() >= teamSize) {
+            TeamBuilder builder = localBuilder(leftovers);
+            for (Team formed : builder.formTeams()) {
+                Team team = new Team(teams.size() + 1);
+                for (Participant p : formed.getMembers()) team.addMember(p);
+                teams.add(team);
+                leftoverTeams++;
+            }
+            unassigned.addAll(builder.getUnassignedParticipants());
+        } else {
+            unassigned.addAll(leftovers);
+        }
+
+        List<Team> balanced = localBuilder(List.of()).refine(teams);
+        logger.info("Coordinated formation: " + balanced.size() + " teams from " + partitions.size()
+                + " partitions, " + leftoverTeams + " from leftovers, " + failedWorkers + " workers failed.");
+        return balanced;
+    }
+
+    // Sorted by type then skill and dealt round-robin, so every partition gets the same mix
+    private List<List<Participant>> partition() {
+        List<Participant> sorted = new ArrayList<>(pool);
+        sorted.sort(Comparator.comparing(Participant::getPersonalityType)
+                .thenComparing(Comparator.comparingInt(Participant::getSkillLevel).reversed()));
+        List<List<Participant>> partitions = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) partitions.add(new ArrayList<>(sorted.size() / workers.size() + 1));
+        for (int i = 0; i < sorted.size(); i++) partitions.get(i % workers.size()).add(sorted.get(i));
+        return partitions;
+    }
+
+    private FormationWorker.Result send(InetSocketAddress address, List<Participant> members, int n)
+            throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(address, CONNECT_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            FormationWorker.writePartition(out, members, teamSize, partitionSeed(n), engine, rules);
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            FormationWorker.Result result = FormationWorker.readResult(in);
+            logger.info("Worker " + address + " formed " + result.teams.length + " teams in " + result.formMillis + " ms");
+            return result;
+        }
+    }
+
+    private FormationWorker.Result formLocally(List<Participant> members, int n) {
+        FormationWorker.Partition partition = new FormationWorker.Partition();
+        partition.teamSize = teamSize;
+        partition.seed = partitionSeed(n);
+        partition.engine = engine;
+        partition.rules = rules;
+        // The worker identifies members by position, as it would after decoding
+        for (int i = 0; i < members.size(); i++) {
+            Participant p = members.get(i);
+            partition.members.add(new Participant(String.valueOf(i), "", "", p.getPreferredGame(),
+                    p.getSkillLevel(), p.getPreferredRole(), p.getPersonalityScore(), p.getPersonalityType()));
+        }
+        return new FormationWorker(localThreads).form(partition);
+    }
+
+    private Long partitionSeed(int n) {
+        return seed == null ? null : seed + n;
+    }
+
+    private TeamBuilder localBuilder(List<Participant> participants) {
+        TeamBuilder builder = new TeamBuilder(participants, teamSize);
+        builder.setMaxThreads(localThreads);
+        builder.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+        builder.setRules(rules);
+        if (seed != null) builder.setSeed(seed);
+        return builder;
+    }
+
+    public List<Participant> getUnassignedParticipants() {
+        return new ArrayList<>(unassigned);
+    }
+
+    public int getFailedWorkers() {
+        return failedWorkers;
+    }
+
+    public int getLeftoverTeams() {
+        return leftoverTeams;
+    }
+
+    /** Slowest worker's own formation time, without transfer. */
+    public long getMaxWorkerMillis() {
+        return maxWorkerMillis;
+    }
+}
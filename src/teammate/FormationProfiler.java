@@ -0,0 +1,190 @@
+package teammate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.*;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Per-phase resource figures for a formation run (load -> form -> optimize -> save).
+ *
+ * For each phase it records wall time, bytes allocated by all threads (the formation
+ * workers included) from the JVM's per-thread allocation counters, GC collections and
+ * GC time from the collector beans, and the peak heap reached. Heap use only grows between
+ * collections, so the peak is the largest of the used heap at the phase boundaries and the
+ * combined heap pools just before each GC in the phase (from the GC notifications). Adding
+ * up each pool's own peak would overstate it, since the pools peak at different times.
+ * Optionally the whole run is captured in a JFR recording with the "profile" settings for a
+ * closer look in JDK Mission Control.
+ */
+public class FormationProfiler {
+
+    private static final Logger logger = AppLogger.getLogger(FormationProfiler.class);
+
+    private static class Phase {
+        final String name;
+        long nanos, allocated, gcCount, gcMillis, peakHeap;
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final Set<String> heapPools = new HashSet<>();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<Phase> phases = new ArrayList<>();
+    private final AtomicLong phasePeak = new AtomicLong();
+    private final List<NotificationEmitter> listeningTo = new ArrayList<>();
+    private NotificationListener gcListener;
+
+    private Phase current;
+    private long startNanos, startAllocated, startGcCount, startGcMillis;
+    private Recording recording;
+    private Path recordingPath;
+
+    public FormationProfiler() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            threads = sunBean;
+        } else {
+            threads = null;
+            logger.warning("Allocation counters not available on this JVM; alloc figures will be -1.");
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) heapPools.add(pool.getName());
+        }
+    }
+
+    // Delivered on the JMX notification thread, shortly after each collection
+    private void onGc(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageBeforeGc().entrySet()) {
+            if (heapPools.contains(pool.getKey())) used += pool.getValue().getUsed();
+        }
+        phasePeak.accumulateAndGet(used, Math::max);
+    }
+
+    /** Starts a JFR recording that is written to the given file by {@link #finish()}. */
+    public void startRecording(String filePath) throws IOException {
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+        } catch (ParseException e) {
+            throw new IOException("JFR profile settings unreadable: " + e.getMessage(), e);
+        }
+        recording.setName("teammate-formation");
+        recordingPath = Path.of(filePath);
+        recording.start();
+        logger.info("JFR recording started, will be written to " + filePath);
+    }
+
+    /** Ends the running phase, if any, and starts measuring the next one. */
+    public void phase(String name) {
+        endPhase();
+        if (gcListener == null) {
+            gcListener = this::onGc;
+            for (GarbageCollectorMXBean gc : collectors) {
+                if (gc instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener(gcListener, null, null);
+                    listeningTo.add(emitter);
+                }
+            }
+        }
+        phasePeak.set(memory.getHeapMemoryUsage().getUsed());
+        current = new Phase(name);
+        startAllocated = totalAllocated();
+        startGcCount = gcCount();
+        startGcMillis = gcMillis();
+        startNanos = System.nanoTime();
+    }
+
+    private void endPhase() {
+        if (current == null) return;
+        current.nanos = System.nanoTime() - startNanos;
+        long allocated = totalAllocated();
+        current.allocated = allocated < 0 ? -1 : allocated - startAllocated;
+        current.gcCount = gcCount() - startGcCount;
+        current.gcMillis = gcMillis() - startGcMillis;
+        current.peakHeap = phasePeak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        phases.add(current);
+        current = null;
+    }
+
+    /** Ends the last phase and writes the JFR recording if one was started. */
+    public void finish() throws IOException {
+        endPhase();
+        for (NotificationEmitter emitter : listeningTo) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException ignored) { }
+        }
+        listeningTo.clear();
+        gcListener = null;
+        if (recording != null) {
+            try {
+                recording.stop();
+                recording.dump(recordingPath);
+                logger.info("JFR recording written to " + recordingPath);
+            } finally {
+                recording.close();
+                recording = null;
+            }
+        }
+    }
+
+    // Includes threads that have already finished, so short-lived pool workers are counted
+    private long totalAllocated() {
+        return threads == null ? -1 : threads.getTotalThreadAllocatedBytes();
+    }
+
+    private long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : collectors) total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    private long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : collectors) total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    /** key=value lines in the same style as the batch stats, one group per phase. */
+    public void print(PrintStream out) {
+        long allocated = 0, gcs = 0, gcTime = 0, peak = 0;
+        for (Phase p : phases) {
+            String prefix = "profile." + p.name + ".";
+            out.printf(Locale.ROOT, "%sms=%.3f%n", prefix, p.nanos / 1e6);
+            out.printf(Locale.ROOT, "%salloc_mb=%.3f%n", prefix, p.allocated < 0 ? -1 : p.allocated / 1048576.0);
+            out.println(prefix + "gc_count=" + p.gcCount);
+            out.println(prefix + "gc_ms=" + p.gcMillis);
+            out.printf(Locale.ROOT, "%speak_heap_mb=%.3f%n", prefix, p.peakHeap / 1048576.0);
+            allocated = allocated < 0 || p.allocated < 0 ? -1 : allocated + p.allocated;
+            gcs += p.gcCount;
+            gcTime += p.gcMillis;
+            peak = Math.max(peak, p.peakHeap);
+        }
+        out.printf(Locale.ROOT, "profile.total.alloc_mb=%.3f%n", allocated < 0 ? -1 : allocated / 1048576.0);
+        out.println("profile.total.gc_count=" + gcs);
+        out.println("profile.total.gc_ms=" + gcTime);
+        out.printf(Locale.ROOT, "profile.total.peak_heap_mb=%.3f%n", peak / 1048576.0);
+        if (recordingPath != null) out.println("profile.jfr=" + recordingPath);
+    }
+}
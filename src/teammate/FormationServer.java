@@ -0,0 +1,358 @@
+package teammate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP front-end for registration and team formation, built on the
+ * JDK's com.sun.net.httpserver so it needs no extra libraries.
+ *
+ *   POST /participants   name, email, game, role, skill, answers (5 values 1-5 or their total)
+ *   GET  /participants   pool size
+ *   GET  /participants/{id}  one participant row, read through the ParticipantIndex
+ *   POST /teams          size (default 5), seed (optional) - forms teams from the live pool
+ *   GET  /teams          last formed teams as CSV
+ *   GET  /teams/{n}      a single team as CSV
+ *
+ * Requests run on virtual threads. Registrations are funnelled through a
+ * RegistrationBatcher so concurrent submissions become one file append per batch,
+ * the loaded pool stays warm in memory, and seeded formations are answered from the
+ * FormationCache when the pool has not changed.
+ */
+public class FormationServer {
+
+    private static final Logger logger = AppLogger.getLogger(FormationServer.class);
+
+    private static final String TEAM_HEADER = "TeamNumber,MemberID,Name,Email,Game,Role,Skill,Score,PersonalityType";
+
+    private final List<Participant> pool;
+    private final ParticipantIndex index;
+    private RegistrationBatcher batcher;
+    private final Object poolLock = new Object();
+
+    // Last formation served by GET /teams; seeded results are also kept in the FormationCache
+    private final Object formationLock = new Object();
+    private final FormationCache cache = FormationCache.getDefault();
+    private volatile List<Team> lastTeams = new ArrayList<>();
+    private int lastUnassigned = 0;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FormationServer(String participantFile) throws IOException {
+        this.pool = new ArrayList<>(CSVHandler.loadParticipants(participantFile));
+        this.index = ParticipantIndex.open(participantFile);
+        logger.info("Formation server pool warmed with " + pool.size() + " participants.");
+    }
+
+    public static int run(String[] args) {
+        int port = 8080;
+        String file = "participants_sample.csv";
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--serve" -> { }
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--input" -> file = args[++i];
+                    default -> throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Usage: java teammate.Main --serve [--port N] [--input FILE]");
+            return 2;
+        }
+
+        FormationServer formationServer;
+        try {
+            formationServer = new FormationServer(file);
+            formationServer.start(port);
+        } catch (IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+            return 1;
+        }
+        System.out.println("TeamMate server listening on http://localhost:" + port);
+        Runtime.getRuntime().addShutdownHook(new Thread(formationServer::stop));
+
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        // Started here rather than in the constructor so no thread sees a half-built server
+        batcher = RegistrationBatcher.start(index, 10_000, this::addToPool);
+        server.createContext("/participants", this::handleParticipants);
+        server.createContext("/teams", this::handleTeams);
+        server.start();
+        logger.info("Formation server started on port " + port);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+        }
+        if (batcher != null) {
+            batcher.close();
+        }
+        logger.info("Formation server stopped.");
+    }
+
+    private void addToPool(List<Participant> committed) {
+        synchronized (poolLock) {
+            pool.addAll(committed);
+        }
+    }
+
+    private void handleParticipants(HttpExchange ex) throws IOException {
+        try {
+            switch (ex.getRequestMethod()) {
+                case "POST" -> register(ex);
+                case "GET" -> {
+                    String path = ex.getRequestURI().getPath();
+                    if (path.startsWith("/participants/") && path.length() > "/participants/".length()) {
+                        Participant p = index.find(path.substring("/participants/".length()));
+                        if (p == null) {
+                            send(ex, 404, "text/plain", "No such participant");
+                        } else {
+                            send(ex, 200, "text/csv", p.toCSVLine() + "\n");
+                        }
+                        return;
+                    }
+                    int size;
+                    synchronized (poolLock) {
+                        size = pool.size();
+                    }
+                    send(ex, 200, "application/json", "{\"participants\":" + size + "}");
+                }
+                default -> send(ex, 405, "text/plain", "Method not allowed");
+            }
+        } catch (Exception e) {
+            logger.severe("Participant request failed: " + e.getMessage());
+            send(ex, 500, "text/plain", "Internal error");
+        }
+    }
+
+    private void register(HttpExchange ex) throws IOException, InterruptedException {
+        Map<String, String> form = parseForm(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+
+        String name = form.getOrDefault("name", "").trim();
+        String email = form.getOrDefault("email", "").trim();
+        String game = choice(Participant.GAMES, form.get("game"));
+        String role = choice(Participant.ROLES, form.get("role"));
+        int skill = parseIntOr(form.get("skill"), -1);
+        int rawTotal = parseAnswers(form.get("answers"));
+
+        // Fields are written to the CSV as-is, so commas and line breaks must not get through
+        if (!name.matches("[a-zA-Z ]+")) {
+            send(ex, 400, "text/plain", "Invalid name");
+            return;
+        }
+        if (!email.contains("@") || !email.contains(".") || email.matches("(?s).*[,\\r\\n].*")) {
+            send(ex, 400, "text/plain", "Invalid email");
+            return;
+        }
+        if (game == null || role == null) {
+            send(ex, 400, "text/plain", "Game must be one of " + Participant.GAMES
+                    + " and role one of " + Participant.ROLES);
+            return;
+        }
+        if (skill < 1 || skill > 10 || rawTotal < 5 || rawTotal > 25) {
+            send(ex, 400, "text/plain", "Invalid survey answers");
+            return;
+        }
+
+        try {
+            Participant p = batcher.submit(name, email, game, skill, role, rawTotal, 2, TimeUnit.SECONDS)
+                    .get(10, TimeUnit.SECONDS);
+            send(ex, 201, "application/json", "{\"id\":\"" + p.getId() + "\",\"score\":" + p.getPersonalityScore()
+                    + ",\"type\":\"" + p.getPersonalityType() + "\"}");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                send(ex, 503, "text/plain", "Registration queue is full, retry later");
+            } else if (e.getCause() instanceof RegistrationBatcher.DuplicateEmailException) {
+                send(ex, 409, "text/plain", e.getCause().getMessage());
+            } else if (e.getCause() instanceof IllegalArgumentException) {
+                send(ex, 400, "text/plain", e.getCause().getMessage());
+            } else {
+                send(ex, 500, "text/plain", "Could not save registration");
+            }
+        } catch (TimeoutException e) {
+            send(ex, 503, "text/plain", "Registration timed out");
+        }
+    }
+
+    private void handleTeams(HttpExchange ex) throws IOException {
+        try {
+            String path = ex.getRequestURI().getPath();
+            switch (ex.getRequestMethod()) {
+                case "POST" -> formTeams(ex);
+                case "GET" -> {
+                    List<Team> teams = lastTeams;
+                    if (path.length() > "/teams/".length() && path.startsWith("/teams/")) {
+                        int number = parseIntOr(path.substring("/teams/".length()), -1);
+                        List<Team> match = teams.stream().filter(t -> t.getTeamNumber() == number).toList();
+                        if (match.isEmpty()) {
+                            send(ex, 404, "text/plain", "No such team");
+                        } else {
+                            send(ex, 200, "text/csv", toCsv(match));
+                        }
+                    } else {
+                        send(ex, 200, "text/csv", toCsv(teams));
+                    }
+                }
+                default -> send(ex, 405, "text/plain", "Method not allowed");
+            }
+        } catch (Exception e) {
+            logger.severe("Team request failed: " + e.getMessage());
+            send(ex, 500, "text/plain", "Internal error");
+        }
+    }
+
+    private void formTeams(HttpExchange ex) throws IOException {
+        Map<String, String> params = parseForm(ex.getRequestURI().getRawQuery());
+        params.putAll(parseForm(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)));
+
+        int size = parseIntOr(params.get("size"), 5);
+        String seed = params.get("seed");
+        if (size < 3 || size > 10) {
+            send(ex, 400, "text/plain", "Team size must be between 3 and 10");
+            return;
+        }
+        Long seedValue = null;
+        if (seed != null) {
+            try {
+                seedValue = Long.parseLong(seed.trim());
+            } catch (NumberFormatException e) {
+                send(ex, 400, "text/plain", "Seed must be a whole number");
+                return;
+            }
+        }
+
+        int teams;
+        int unassigned;
+        boolean reused;
+
+        // One formation at a time; callers asking for the same pool state share the result
+        synchronized (formationLock) {
+            List<Participant> snapshot;
+            synchronized (poolLock) {
+                snapshot = new ArrayList<>(pool);
+            }
+
+            // The rules are part of the key: the cache is on disk and outlives rule changes
+            TeamRules rules = TeamRules.getDefault();
+            String key = seedValue == null ? null
+                    : FormationCache.key(FormationCache.fingerprint(snapshot), size, seedValue,
+                            "concurrent" + rules.cacheTag());
+            List<Team> cached = key == null ? null : cache.get(key, snapshot);
+            reused = cached != null;
+
+            if (reused) {
+                lastTeams = Collections.unmodifiableList(cached);
+                lastUnassigned = FormationCache.unassigned(snapshot, cached).size();
+            } else {
+                TeamBuilder builder = new TeamBuilder(snapshot, size);
+                builder.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+                builder.setRules(rules);
+                if (seedValue != null) builder.setSeed(seedValue);
+                List<Team> formed = builder.buildTeams();
+                if (key != null && !formed.isEmpty()) cache.put(key, formed);
+                lastTeams = Collections.unmodifiableList(formed);
+                lastUnassigned = builder.getUnassignedParticipants().size();
+            }
+            teams = lastTeams.size();
+            unassigned = lastUnassigned;
+        }
+
+        send(ex, 200, "application/json", "{\"teams\":" + teams + ",\"unassigned\":" + unassigned
+                + ",\"cached\":" + reused + "}");
+    }
+
+    private static String toCsv(List<Team> teams) {
+        StringBuilder sb = new StringBuilder(TEAM_HEADER).append('\n');
+        for (Team team : teams) {
+            for (Participant p : team.getMembers()) {
+                sb.append(team.getTeamNumber()).append(',')
+                        .append(p.getId()).append(',')
+                        .append(p.getName()).append(',');
+                p.appendEmail(sb).append(',')
+                        .append(p.getPreferredGame()).append(',')
+                        .append(p.getPreferredRole()).append(',')
+                        .append(p.getSkillLevel()).append(',')
+                        .append(p.getPersonalityScore()).append(',')
+                        .append(p.getPersonalityType()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int parseAnswers(String answers) {
+        if (answers == null || answers.isBlank()) return -1;
+        String[] parts = answers.split("[,\\s]+");
+        if (parts.length == 1) return parseIntOr(parts[0], -1);
+        if (parts.length != 5) return -1;
+
+        int total = 0;
+        for (String part : parts) {
+            int v = parseIntOr(part, -1);
+            if (v < 1 || v > 5) return -1;
+            total += v;
+        }
+        return total;
+    }
+
+    // The listed value matching the input ignoring case, or null when it is not one of them
+    private static String choice(List<String> values, String input) {
+        if (input == null) return null;
+        for (String value : values) {
+            if (value.equalsIgnoreCase(input.trim())) return value;
+        }
+        return null;
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> map = new HashMap<>();
+        if (body == null || body.isEmpty()) return map;
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            map.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return map;
+    }
+
+    private static int parseIntOr(String value, int fallback) {
+        if (value == null) return fallback;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static void send(HttpExchange ex, int status, String type, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
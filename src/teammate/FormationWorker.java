@@ -0,0 +1,270 @@
+package teammate;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Formation worker process for coordinated runs (see FormationCoordinator).
+ *
+ *   java teammate.Main --worker [--port N] [--bind ADDR] [--threads N]
+ *
+ * Listens on localhost by default (--bind 0.0.0.0 to accept other machines), prints
+ * worker_port=N once it is ready, and answers each connection with the teams formed
+ * from the partition sent on it.
+ *
+ * Partitions carry only what formation needs. Names and emails never leave the
+ * coordinator. Game, role and personality type are sent once as string tables, and each
+ * participant is then 7 bytes: game and role codes (short), skill, personality score
+ * and type code (byte). Participants are identified by their position in the partition,
+ * so teams and leftovers come back as plain int positions.
+ *
+ *   request:  magic, version, team size, seed flag + seed, engine, rules (key/value pairs),
+ *             game / role / type tables, count, then count x 7 bytes
+ *   response: magic, status (0 = ok, else an error message follows), form time in ms,
+ *             team count, per team its size and member positions, leftover positions
+ */
+public class FormationWorker {
+
+    private static final Logger logger = AppLogger.getLogger(FormationWorker.class);
+
+    static final int MAGIC = 0x544D5750; // "TMWP"
+    static final int VERSION = 1;
+
+    /** A partition as received by the worker. */
+    static class Partition {
+        int teamSize;
+        Long seed;
+        String engine;
+        TeamRules rules;
+        final List<Participant> members = new ArrayList<>();
+    }
+
+    /** Teams and leftovers as positions into the partition that was sent. */
+    static class Result {
+        long formMillis;
+        int[][] teams;
+        int[] leftovers;
+    }
+
+    private final int threads;
+
+    public FormationWorker(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public static int run(String[] args) {
+        int port = 0;
+        String bind = "localhost";
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--worker" -> { }
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--bind" -> bind = args[++i];
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Usage: java teammate.Main --worker [--port N] [--bind ADDR] [--threads N]");
+            return 2;
+        }
+
+        FormationWorker worker = new FormationWorker(threads);
+        try (ServerSocket server = new ServerSocket()) {
+            server.bind(new InetSocketAddress(InetAddress.getByName(bind), port));
+            System.out.println("worker_port=" + server.getLocalPort());
+            System.out.flush();
+            logger.info("Formation worker listening on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> worker.serve(socket), "formation-worker-connection");
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (IOException e) {
+            System.err.println("Worker stopped: " + e.getMessage());
+            logger.severe("Formation worker stopped: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            Partition partition;
+            try {
+                partition = readPartition(in);
+            } catch (IllegalArgumentException e) {
+                out.writeInt(MAGIC);
+                out.writeInt(1);
+                out.writeUTF(e.getMessage());
+                out.flush();
+                return;
+            }
+            logger.info("Partition received: " + partition.members.size() + " participants from "
+                    + socket.getRemoteSocketAddress());
+            Result result = form(partition);
+            writeResult(out, result);
+            out.flush();
+        } catch (IOException e) {
+            logger.warning("Partition connection failed: " + e.getMessage());
+        }
+    }
+
+    Result form(Partition partition) {
+        long start = System.nanoTime();
+        List<Team> teams;
+        List<Participant> leftovers;
+        if ("snake".equals(partition.engine)) {
+            SnakeDraftEngine draft = new SnakeDraftEngine(partition.members, partition.teamSize);
+            draft.setRules(partition.rules);
+            if (partition.seed != null) draft.setSeed(partition.seed);
+            teams = draft.formTeams();
+            leftovers = draft.getUnassignedParticipants();
+        } else {
+            TeamBuilder builder = new TeamBuilder(partition.members, partition.teamSize);
+            builder.setMaxThreads(threads);
+            builder.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+            builder.setRules(partition.rules);
+            if (partition.seed != null) builder.setSeed(partition.seed);
+            builder.formTeams();
+            builder.optimizeBalance();
+            teams = builder.getFormedTeams();
+            leftovers = builder.getUnassignedParticipants();
+        }
+
+        Result result = new Result();
+        result.teams = new int[teams.size()][];
+        for (int t = 0; t < teams.size(); t++) {
+            List<Participant> members = teams.get(t).getMembers();
+            result.teams[t] = new int[members.size()];
+            for (int m = 0; m < members.size(); m++) result.teams[t][m] = Integer.parseInt(members.get(m).getId());
+        }
+        result.leftovers = new int[leftovers.size()];
+        for (int i = 0; i < leftovers.size(); i++) result.leftovers[i] = Integer.parseInt(leftovers.get(i).getId());
+        result.formMillis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    static void writePartition(DataOutputStream out, List<Participant> members, int teamSize, Long seed,
+                               String engine, TeamRules rules) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(teamSize);
+        out.writeBoolean(seed != null);
+        out.writeLong(seed == null ? 0 : seed);
+        out.writeUTF(engine);
+
+        Properties props = rules.toProperties();
+        out.writeShort(props.size());
+        for (String key : props.stringPropertyNames()) {
+            out.writeUTF(key);
+            out.writeUTF(props.getProperty(key));
+        }
+
+        Map<String, Integer> games = new LinkedHashMap<>();
+        Map<String, Integer> roles = new LinkedHashMap<>();
+        Map<String, Integer> types = new LinkedHashMap<>();
+        for (Participant p : members) {
+            games.putIfAbsent(p.getPreferredGame(), games.size());
+            roles.putIfAbsent(p.getPreferredRole(), roles.size());
+            types.putIfAbsent(p.getPersonalityType(), types.size());
+        }
+        if (games.size() > Short.MAX_VALUE || roles.size() > Short.MAX_VALUE || types.size() > 255) {
+            throw new IOException("too many distinct games, roles or types for one partition");
+        }
+        writeTable(out, games);
+        writeTable(out, roles);
+        writeTable(out, types);
+
+        out.writeInt(members.size());
+        for (Participant p : members) {
+            out.writeShort(games.get(p.getPreferredGame()));
+            out.writeShort(roles.get(p.getPreferredRole()));
+            out.writeByte(p.getSkillLevel());
+            out.writeByte(p.getPersonalityScore());
+            out.writeByte(types.get(p.getPersonalityType()));
+        }
+    }
+
+    static Partition readPartition(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IllegalArgumentException("not a formation partition");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IllegalArgumentException("unsupported partition version " + version);
+
+        Partition partition = new Partition();
+        partition.teamSize = in.readUnsignedByte();
+        boolean seeded = in.readBoolean();
+        long seed = in.readLong();
+        partition.seed = seeded ? seed : null;
+        partition.engine = in.readUTF();
+
+        Properties props = new Properties();
+        int ruleCount = in.readUnsignedShort();
+        for (int i = 0; i < ruleCount; i++) props.setProperty(in.readUTF(), in.readUTF());
+        partition.rules = TeamRules.fromProperties(props, "coordinator");
+
+        String[] games = readTable(in);
+        String[] roles = readTable(in);
+        String[] types = readTable(in);
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String game = games[in.readUnsignedShort()];
+            String role = roles[in.readUnsignedShort()];
+            int skill = in.readUnsignedByte();
+            int score = in.readUnsignedByte();
+            String type = types[in.readUnsignedByte()];
+            partition.members.add(new Participant(String.valueOf(i), "", "", game, skill, role, score, type));
+        }
+        return partition;
+    }
+
+    static void writeResult(DataOutputStream out, Result result) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(0);
+        out.writeLong(result.formMillis);
+        out.writeInt(result.teams.length);
+        for (int[] team : result.teams) {
+            out.writeByte(team.length);
+            for (int position : team) out.writeInt(position);
+        }
+        out.writeInt(result.leftovers.length);
+        for (int position : result.leftovers) out.writeInt(position);
+    }
+
+    static Result readResult(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("not a formation worker response");
+        if (in.readInt() != 0) throw new IOException("worker rejected the partition: " + in.readUTF());
+        Result result = new Result();
+        result.formMillis = in.readLong();
+        result.teams = new int[in.readInt()][];
+        for (int t = 0; t < result.teams.length; t++) {
+            result.teams[t] = new int[in.readUnsignedByte()];
+            for (int m = 0; m < result.teams[t].length; m++) result.teams[t][m] = in.readInt();
+        }
+        result.leftovers = new int[in.readInt()];
+        for (int i = 0; i < result.leftovers.length; i++) result.leftovers[i] = in.readInt();
+        return result;
+    }
+
+    private static void writeTable(DataOutputStream out, Map<String, Integer> table) throws IOException {
+        out.writeShort(table.size());
+        for (String value : table.keySet()) out.writeUTF(value == null ? "" : value);
+    }
+
+    private static String[] readTable(DataInputStream in) throws IOException {
+        String[] table = new String[in.readUnsignedShort()];
+        for (int i = 0; i < table.length; i++) table[i] = StringDictionary.canonical(in.readUTF());
+        return table;
+    }
+}
@@ -0,0 +1,202 @@
+package teammate;
+
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Import stage run by CSVHandler after parsing. Copies the numeric and categorical columns
+ * into primitive arrays, checks every row in tight loops (in parallel chunks for big files),
+ * re-derives the personality type from the score and drops rows that cannot be trusted.
+ *
+ * Rows whose PersonalityType disagrees with their score are kept but reclassified, the same
+ * way Participant classifies new survey answers.
+ */
+public class ImportValidator {
+
+    private static final Logger logger = AppLogger.getLogger(ImportValidator.class);
+
+    // Below this many rows the fork/join split costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 50_000;
+    private static final int CHUNK = 16_384;
+
+    static final byte OK = 0;
+    static final byte RECLASSIFIED = 1;
+    static final byte BAD_SKILL = 2;
+    static final byte BAD_SCORE = 3;
+    static final byte UNKNOWN_GAME = 4;
+    static final byte UNKNOWN_ROLE = 5;
+
+    private static final String[] REASONS = {"ok", "reclassified", "skill out of range 1-10",
+            "score out of range 0-100", "unknown game", "unknown role"};
+    private static final int SAMPLE_IDS = 5;
+
+    private static final Set<String> GAME_KEYS = lowerSet(Participant.GAMES);
+    private static final Set<String> ROLE_KEYS = lowerSet(Participant.ROLES);
+
+    /** Compact summary: a counter per outcome plus the first few offending IDs. */
+    public static class Report {
+        private final int[] counts = new int[REASONS.length];
+        private final List<List<String>> samples = new ArrayList<>();
+
+        Report() {
+            for (int i = 0; i < REASONS.length; i++) samples.add(new ArrayList<>(SAMPLE_IDS));
+        }
+
+        void record(byte code, String id) {
+            counts[code]++;
+            if (code != OK && samples.get(code).size() < SAMPLE_IDS) samples.get(code).add(id);
+        }
+
+        public int accepted() {
+            return counts[OK] + counts[RECLASSIFIED];
+        }
+
+        public int reclassified() {
+            return counts[RECLASSIFIED];
+        }
+
+        public int rejected() {
+            int total = 0;
+            for (int i = BAD_SKILL; i < counts.length; i++) total += counts[i];
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("accepted=").append(accepted())
+              .append(" reclassified=").append(reclassified())
+              .append(" rejected=").append(rejected());
+            for (int i = RECLASSIFIED; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                sb.append("\n  ").append(REASONS[i]).append(": ").append(counts[i])
+                  .append(" e.g. ").append(String.join(", ", samples.get(i)));
+            }
+            return sb.toString();
+        }
+    }
+
+    private ImportValidator() { }
+
+    /**
+     * Validates rows in place: rejected rows are removed and mislabelled personality
+     * types are replaced. Returns the report for logging.
+     */
+    public static Report validate(List<Participant> rows) {
+        int n = rows.size();
+        int[] skill = new int[n];
+        int[] score = new int[n];
+        boolean[] knownGame = new boolean[n];
+        boolean[] knownRole = new boolean[n];
+        byte[] type = new byte[n];
+
+        Map<String, Boolean> gameCache = new HashMap<>();
+        Map<String, Boolean> roleCache = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            Participant p = rows.get(i);
+            skill[i] = p.getSkillLevel();
+            score[i] = p.getPersonalityScore();
+            knownGame[i] = gameCache.computeIfAbsent(p.getPreferredGame(), ImportValidator::knownGame);
+            knownRole[i] = roleCache.computeIfAbsent(p.getPreferredRole(), ImportValidator::knownRole);
+            type[i] = typeCode(p.getPersonalityType());
+        }
+
+        byte[] verdict = new byte[n];
+        if (n >= PARALLEL_THRESHOLD) {
+            IntStream.range(0, (n + CHUNK - 1) / CHUNK).parallel()
+                    .forEach(c -> check(skill, score, knownGame, knownRole, type, verdict,
+                            c * CHUNK, Math.min(n, (c + 1) * CHUNK)));
+        } else {
+            check(skill, score, knownGame, knownRole, type, verdict, 0, n);
+        }
+
+        Report report = new Report();
+        int write = 0;
+        for (int i = 0; i < n; i++) {
+            Participant p = rows.get(i);
+            byte code = verdict[i];
+            report.record(code, p.getId());
+
+            if (code == OK) {
+                rows.set(write++, p);
+            } else if (code == RECLASSIFIED) {
+                rows.set(write++, reclassified(p));
+            }
+        }
+        rows.subList(write, n).clear();
+
+        log(report);
+        return report;
+    }
+
+    /**
+     * Checks a single row the same way validate does, for callers that stream rows instead
+     * of holding them in a list. Record the result in a Report and use reclassified() for
+     * RECLASSIFIED rows.
+     */
+    static byte verdict(Participant p) {
+        return verdict(p.getSkillLevel(), p.getPersonalityScore(), knownGame(p.getPreferredGame()),
+                knownRole(p.getPreferredRole()), typeCode(p.getPersonalityType()));
+    }
+
+    static boolean isRejected(byte code) {
+        return code >= BAD_SKILL;
+    }
+
+    static Participant reclassified(Participant p) {
+        return new Participant(p.getId(), p.getName(), p.getEmail(), p.getPreferredGame(),
+                p.getSkillLevel(), p.getPreferredRole(), p.getPersonalityScore(),
+                Participant.classify(p.getPersonalityScore()));
+    }
+
+    /** Logs a report the way validate does: a warning when anything was rejected or changed. */
+    static void log(Report report) {
+        if (report.rejected() > 0 || report.reclassified() > 0) {
+            logger.warning("Import validation: " + report);
+        } else {
+            logger.info("Import validation: " + report);
+        }
+    }
+
+    // Branch-light loop over primitive columns only
+    private static void check(int[] skill, int[] score, boolean[] knownGame, boolean[] knownRole,
+                              byte[] type, byte[] verdict, int from, int to) {
+        for (int i = from; i < to; i++) {
+            verdict[i] = verdict(skill[i], score[i], knownGame[i], knownRole[i], type[i]);
+        }
+    }
+
+    private static byte verdict(int skill, int score, boolean knownGame, boolean knownRole, byte type) {
+        byte expected = (byte) (score >= 90 ? 1 : score >= 70 ? 2 : 3);
+        byte code = type == expected ? OK : RECLASSIFIED;
+        if (!knownRole) code = UNKNOWN_ROLE;
+        if (!knownGame) code = UNKNOWN_GAME;
+        if (score < 0 || score > 100) code = BAD_SCORE;
+        if (skill < 1 || skill > 10) code = BAD_SKILL;
+        return code;
+    }
+
+    private static boolean knownGame(String game) {
+        return GAME_KEYS.contains(game.toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean knownRole(String role) {
+        return ROLE_KEYS.contains(role.toLowerCase(Locale.ROOT));
+    }
+
+    // 1 = Leader, 2 = Balanced, 3 = Thinker, 0 = anything else
+    private static byte typeCode(String type) {
+        if ("Leader".equals(type)) return 1;
+        if ("Balanced".equals(type)) return 2;
+        if ("Thinker".equals(type)) return 3;
+        return 0;
+    }
+
+    private static Set<String> lowerSet(List<String> values) {
+        Set<String> set = new HashSet<>();
+        for (String v : values) set.add(v.toLowerCase(Locale.ROOT));
+        return set;
+    }
+}
@@ -3,11 +3,41 @@ package teammate;
 import java.util.Scanner;
 import java.util.logging.Logger;
 
+/**
+ * Entry point: interactive menus, or batch / server / worker mode when arguments are given.
+ *
+ * Batch and server runs never touch the interactive setup. For the fastest cold start,
+ * record the classes a typical run loads once and reuse them on every launch:
+ *
+ *   JDK 25+ (AOT cache):
+ *     java -XX:AOTCacheOutput=teammate.aot -cp teammate.jar teammate.Main --train
+ *     java -XX:AOTCache=teammate.aot -cp teammate.jar teammate.Main --input participants.csv ...
+ *
+ *   Older JDKs (dynamic AppCDS archive):
+ *     java -XX:ArchiveClassesAtExit=teammate.jsa -cp teammate.jar teammate.Main --train
+ *     java -XX:SharedArchiveFile=teammate.jsa -cp teammate.jar teammate.Main --input participants.csv ...
+ *
+ * --train runs load, form, optimize and save on participants_sample.csv without using the
+ * formation cache, the run history or formed_teams.csv. The classes must come from a jar
+ * (CDS ignores class directories); recreate the archive after rebuilding it.
+ */
 public class Main {
     private static final Logger logger = AppLogger.getLogger(Main.class);
-    private static final Scanner scanner = new Scanner(System.in);
+    private static Scanner scanner;
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            System.exit(FormationServer.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--worker")) {
+            System.exit(FormationWorker.run(args));
+        }
+        // Any other command-line argument switches to the non-interactive batch pipeline
+        if (args.length > 0) {
+            System.exit(BatchMode.run(args));
+        }
+
+        scanner = new Scanner(System.in);
         System.out.println("==================================================");
         System.out.println("             TEAM MATE SYSTEM");
         System.out.println("==================================================\n");
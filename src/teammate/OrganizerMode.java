@@ -1,6 +1,7 @@
 package teammate;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.Logger;
@@ -14,12 +15,19 @@ public class OrganizerMode implements MenuHandler {
     private  List<Participant> participants = new ArrayList<>();
     private  List<Team> formedTeams = new ArrayList<>();
     private  int teamSize = 5;
+    private ParticipantBrowser browser;
+    // Follows the loaded file so registrations appended meanwhile show up without a reload
+    private  ParticipantTail tail;
+
+    private static final int PARTICIPANTS_PER_PAGE = 20;
+    private static final int TEAMS_PER_PAGE = 5;
 
     @Override
     public  void run() {
         logger.info("Organizer Mode started.");
 
         while (true) {
+            refreshFromTail();
             showMenu();
             int choice = readInt();
 
@@ -32,14 +40,19 @@ public class OrganizerMode implements MenuHandler {
                 case 4 -> formBalancedTeams();
                 case 5 -> viewFormedTeams();
                 case 6 -> saveTeamsToCSV();
-                case 7 -> {
+                case 7 -> viewFormationHistory();
+                case 8 -> {
+                    if (tail != null) {
+                        tail.close();
+                        tail = null;
+                    }
                     logger.info("User exited Organizer Mode.");
                     System.out.println("\nReturning to main menu...\n");
                     return;
                 }
                 default -> {
                     logger.warning("Invalid menu selection: " + choice);
-                    System.out.println("Invalid option. Please choose 1–7.");
+                    System.out.println("Invalid option. Please choose 1–8.");
                 }
             }
         }
@@ -56,8 +69,9 @@ public class OrganizerMode implements MenuHandler {
         System.out.println("4. Form Balanced Teams");
         System.out.println("5. View Formed Teams");
         System.out.println("6. Save Teams to formed_teams.csv");
-        System.out.println("7. Return to Main Menu");
-        System.out.print("\nEnter your choice (1-7): ");
+        System.out.println("7. Formation History");
+        System.out.println("8. Return to Main Menu");
+        System.out.print("\nEnter your choice (1-8): ");
     }
 
     private  void loadParticipantsFromCSV() {
@@ -67,31 +81,58 @@ public class OrganizerMode implements MenuHandler {
         System.out.println(" • Press Enter → load default file: participants_sample.csv");
         System.out.println(" • Type filename ");
         System.out.println(" • Enter full path ");
+        System.out.println(" • Several files separated by commas are merged (duplicate emails dropped)");
         System.out.print("\nEnter file path or press Enter for default: ");
         String input = sc.nextLine().trim();
         String filePath = input.isEmpty() ? "participants_sample.csv" : input;
 
-        File file = new File(filePath);
-
-        if (!file.exists()) {
-            logger.severe("CSV NOT FOUND: " + file.getAbsolutePath());
-            System.out.println("\nERROR: File not found!");
-            pause();
-            return;
+        List<String> files = new ArrayList<>();
+        for (String part : filePath.split(",")) {
+            if (!part.isBlank()) files.add(part.trim());
+        }
+        for (String name : files) {
+            File file = new File(name);
+            if (!file.exists()) {
+                logger.severe("CSV NOT FOUND: " + file.getAbsolutePath());
+                System.out.println("\nERROR: File not found: " + name);
+                pause();
+                return;
+            }
         }
 
         logger.info("CSV found. Loading file: " + filePath);
 
+        if (tail != null) {
+            tail.close();
+            tail = null;
+        }
+        // Only a single plain file can be followed by byte offset
+        boolean follow = files.size() == 1 && !CompressedFiles.isCompressed(files.get(0));
+        ParticipantTail opened = follow ? new ParticipantTail(files.get(0)) : null;
+        tail = opened;
         ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<List<Participant>> future = executor.submit(() ->
-                CSVHandler.loadParticipants(filePath)
-        );
+        Future<List<Participant>> future = follow
+                ? executor.submit(opened::open)
+                : executor.submit(() -> CSVHandler.loadParticipants(files));
 
         try {
             participants = future.get(15, TimeUnit.SECONDS);
+            browser = null;
             logger.info("Successfully loaded " + participants.size() + " participants.");
             System.out.println("SUCCESS!");
             System.out.println("   Loaded " + participants.size() + " participants");
+            if (follow) {
+                System.out.println("   New registrations in this file will be picked up automatically");
+            } else if (files.size() > 1) {
+                ParticipantMerge.Result merge = CSVHandler.getLastMerge();
+                System.out.println("   Merged " + files.size() + " files: " + merge.getDuplicates()
+                        + " duplicate emails dropped, " + merge.getRemapped() + " clashing IDs renumbered");
+            }
+
+            ImportValidator.Report report = follow ? opened.getLastImportReport() : CSVHandler.getLastImportReport();
+            if (report != null && (report.rejected() > 0 || report.reclassified() > 0)) {
+                System.out.println("   Import check: " + report);
+            }
         } catch (TimeoutException e) {
             logger.severe("CSV loading timed out.");
             System.out.println("ERROR: Loading took too long.\n");
@@ -106,27 +147,108 @@ public class OrganizerMode implements MenuHandler {
     }
 
 
+    // Only rows appended since the last check are parsed; a rewritten file replaces the pool
+    private  void refreshFromTail() {
+        if (tail == null) return;
+        // Polling WatchServices (e.g. on macOS) report late; reading the tail here costs only the new bytes
+        try {
+            tail.poll();
+        } catch (IOException e) {
+            logger.warning("Could not check for new registrations: " + e.getMessage());
+        }
+        ParticipantTail.Changes changes = tail.drain();
+        if (changes.isEmpty()) return;
+        if (changes.isReloaded()) {
+            participants = changes.getRows();
+            System.out.println("\n Participant file changed, reloaded " + participants.size() + " participants.\n");
+        } else {
+            participants.addAll(changes.getRows());
+            System.out.println("\n " + changes.getRows().size() + " new registration(s) picked up ("
+                    + participants.size() + " participants).\n");
+        }
+        browser = null;
+        logger.info("Live pool updated: " + participants.size() + " participants.");
+    }
+
+
     private  void viewAllParticipants() {
         logger.info("User chose to view all participants.");
 
         if (participants.isEmpty()) {
             logger.warning("No participants to display.");
             System.out.println("\nNo participants found.\n");
-        } else {
-            logger.info("Displaying " + participants.size() + " participants.");
-            System.out.println("\n=== ALL PARTICIPANTS (" + participants.size() + ") ===\n");
-            for (Participant p : participants) {
-                System.out.printf("P%03d | %-20s | %-10s | %-10s | Skill: %2d | Score: %3d | %s%n",
-                        Integer.parseInt(p.getId().substring(1)),
-                        p.getName(),
-                        p.getPreferredGame(),
-                        p.getPreferredRole(),
-                        p.getSkillLevel(),
-                        p.getPersonalityScore(),
-                        p.getPersonalityType());
+            pause();
+            return;
+        }
+
+        if (browser == null) {
+            browser = new ParticipantBrowser(participants);
+        }
+        logger.info("Browsing " + participants.size() + " participants.");
+
+        int page = 0;
+        while (true) {
+            int pages = browser.pageCount(PARTICIPANTS_PER_PAGE);
+            page = Math.max(0, Math.min(page, pages - 1));
+
+            System.out.println("\n=== PARTICIPANTS (" + browser.size() + " of " + participants.size() + ") ===  page "
+                    + (page + 1) + "/" + pages + "  |  " + browser.describe() + "\n");
+            System.out.print(browser.renderPage(page, PARTICIPANTS_PER_PAGE));
+            System.out.println("\n[Enter] next  [p] prev  [g N] go to page  [f game=.. role=.. type=..] filter"
+                    + "  [c] clear  [s id|name|skill|score] sort  [q] back");
+            System.out.print("> ");
+
+            String cmd = sc.nextLine().trim();
+            String lower = cmd.toLowerCase(Locale.ROOT);
+
+            if (lower.isEmpty() || lower.equals("n")) {
+                if (page + 1 >= pages) return;
+                page++;
+            } else if (lower.equals("p")) {
+                page--;
+            } else if (lower.startsWith("g ")) {
+                try {
+                    page = Integer.parseInt(lower.substring(2).trim()) - 1;
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid page number.");
+                }
+            } else if (lower.startsWith("f ")) {
+                applyFilter(cmd.substring(2));
+                page = 0;
+            } else if (lower.equals("c")) {
+                browser.setFilter(null, null, null);
+                page = 0;
+            } else if (lower.startsWith("s ")) {
+                try {
+                    browser.setSort(ParticipantBrowser.SortKey.valueOf(lower.substring(2).trim().toUpperCase(Locale.ROOT)));
+                    page = 0;
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Sort by id, name, skill or score.");
+                }
+            } else if (lower.equals("q")) {
+                return;
+            } else {
+                System.out.println("Unknown command.");
             }
         }
-        pause();
+    }
+
+    // Accepts "game=Chess role=Attacker type=Leader"; values may use '_' for spaces (e.g. DOTA_2)
+    private  void applyFilter(String spec) {
+        String game = null, role = null, type = null;
+        for (String part : spec.trim().split("\\s+")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0) continue;
+            String value = part.substring(eq + 1).replace('_', ' ');
+            switch (part.substring(0, eq).toLowerCase(Locale.ROOT)) {
+                case "game" -> game = value;
+                case "role" -> role = value;
+                case "type", "personality" -> type = value;
+                default -> System.out.println("Ignoring unknown filter: " + part);
+            }
+        }
+        browser.setFilter(game, role, type);
+        logger.info("Participant view filtered: " + browser.describe());
     }
 
 
@@ -179,8 +301,11 @@ public class OrganizerMode implements MenuHandler {
         }
 
         System.out.println("Starting team formation with " + participants.size() + " participants...");
-        System.out.print("Press Enter to continue or type 'cancel' to abort: ");
-        if (sc.nextLine().trim().equalsIgnoreCase("cancel")) {
+        System.out.println("Press Enter to continue, 'fresh' to ignore a cached result,");
+        System.out.print("'mix' to avoid pairing people who were teamed before, or 'cancel' to abort: ");
+        String answer = sc.nextLine().trim();
+        boolean mix = answer.equalsIgnoreCase("mix");
+        if (answer.equalsIgnoreCase("cancel")) {
             System.out.println("Cancelled.\n");
             pause();
             return;
@@ -188,7 +313,51 @@ public class OrganizerMode implements MenuHandler {
 
         long start = System.currentTimeMillis();
 
+        FormationCache cache = FormationCache.getDefault();
+        String engineKey = "concurrent" + TeamRules.getDefault().cacheTag();
+        String cacheKey = FormationCache.key(FormationCache.fingerprint(participants), teamSize, null, engineKey);
+        if (!answer.equalsIgnoreCase("fresh") && !mix) {
+            List<Team> cached = cache.get(cacheKey, participants);
+            if (cached != null) {
+                formedTeams.clear();
+                formedTeams.addAll(cached);
+                long time = System.currentTimeMillis() - start;
+                logger.info("Reused cached formation with " + formedTeams.size() + " teams.");
+                System.out.printf("\nSame pool and team size as an earlier run - reused its %d teams in %.3f seconds.\n",
+                        formedTeams.size(), time / 1000.0);
+                System.out.println("(Type 'fresh' next time to form new teams instead.)\n");
+                printUnassigned(FormationCache.unassigned(participants, formedTeams));
+                pause();
+                return;
+            }
+
+            // Small roster change since an earlier run: repair that formation instead of starting over
+            List<Team> previous = cache.nearest(participants, teamSize, null, engineKey, 0.8);
+            if (previous != null) {
+                TeamBuilder builder = new TeamBuilder(new ArrayList<>(), teamSize);
+                List<Team> teams = builder.reformTeams(previous,
+                        FormationCache.unassigned(participants, previous), List.of());
+                if (!teams.isEmpty()) {
+                    formedTeams.clear();
+                    formedTeams.addAll(teams);
+                    cache.put(cacheKey, formedTeams);
+                    long time = System.currentTimeMillis() - start;
+                    RunStore.getDefault().record(participants, teamSize, null, "concurrent", time, formedTeams);
+                    logger.info("Re-formed teams from previous run: " + formedTeams.size() + " teams.");
+                    System.out.printf("\nRoster changed slightly - updated the previous %d teams in %.3f seconds.\n",
+                            formedTeams.size(), time / 1000.0);
+                    System.out.println("(Type 'fresh' next time to form new teams instead.)\n");
+                    printUnassigned(builder.getUnassignedParticipants());
+                    pause();
+                    return;
+                }
+            }
+        }
+
         TeamBuilder builder = new TeamBuilder(new ArrayList<>(participants), teamSize);
+        if (mix) {
+            builder.setPairHistory(RunStore.getDefault().getPairHistory());
+        }
         ExecutorService executor = Executors.newSingleThreadExecutor();
         Future<List<Team>> future = executor.submit(() -> {
 
@@ -202,30 +371,19 @@ public class OrganizerMode implements MenuHandler {
             // Main thread waits for the result (Blocking call, but keeps the menu loop clean)
             formedTeams.clear();
             formedTeams.addAll(future.get(60, TimeUnit.SECONDS));
+            if (!formedTeams.isEmpty()) {
+                cache.put(cacheKey, formedTeams);
+            }
 
             long time = System.currentTimeMillis() - start;
+            if (!formedTeams.isEmpty()) {
+                RunStore.getDefault().record(participants, teamSize, null, "concurrent", time, formedTeams);
+            }
             logger.info("Teams successfully formed. Total teams: " + formedTeams.size());
             System.out.printf("\nTEAM FORMATION COMPLETE in %.2f seconds!\n", time / 1000.0);
             System.out.println("Successfully formed " + formedTeams.size() + " balanced teams!\n");
 
-            List<Participant> leftover = builder.getUnassignedParticipants();
-
-            if (!leftover.isEmpty()) {
-                System.out.println("\n===============================================");
-                System.out.println("   PARTICIPANTS NOT ASSIGNED TO ANY TEAM");
-                System.out.println("===============================================\n");
-
-                for (Participant p : leftover) {
-                    System.out.printf("ID: %s | %-20s | Skill: %2d | %s%n",
-                            p.getId(), p.getName(),
-                            p.getSkillLevel(),
-                            p.getPersonalityType());
-                }
-
-                System.out.println("\nReason:");
-                System.out.println("• Not enough remaining participants OR");
-                System.out.println("• Team constraints (Leader/Thinker/Role/Game) prevented valid team assignment\n");
-            }
+            printUnassigned(builder.getUnassignedParticipants());
 
         } catch (TimeoutException e) {
             logger.severe("Team formation timed out.");
@@ -242,6 +400,69 @@ public class OrganizerMode implements MenuHandler {
         pause();
     }
 
+    private  void viewFormationHistory() {
+        logger.info("User chose to view formation history.");
+        RunStore store = RunStore.getDefault();
+        List<RunStore.Run> runs = store.getRuns();
+
+        if (runs.isEmpty()) {
+            System.out.println("\nNo formation runs recorded yet.\n");
+            pause();
+            return;
+        }
+
+        System.out.println("\n=== FORMATION HISTORY (" + runs.size() + " runs) ===\n");
+        for (int i = Math.max(0, runs.size() - 10); i < runs.size(); i++) {
+            System.out.println("  " + runs.get(i));
+        }
+        if (!participants.isEmpty()) {
+            RunStore.Run best = store.bestForPool(participants, teamSize);
+            if (best != null) {
+                System.out.printf("\nBest skill range for the loaded pool at size %d: %.2f (run %d)\n",
+                        teamSize, best.getSkillRange(), best.getNumber());
+            }
+        }
+
+        System.out.print("\nEnter a participant ID to see their past teams, or press Enter to go back: ");
+        String id = sc.nextLine().trim().toUpperCase(Locale.ROOT);
+        if (!id.isEmpty()) {
+            List<long[]> entries = store.teamsOf(id);
+            if (entries.isEmpty()) {
+                System.out.println("\n" + id + " has not been on any recorded team.");
+            }
+            for (long[] e : entries) {
+                try {
+                    System.out.println("  run " + e[0] + ", team " + e[1] + ": "
+                            + String.join(", ", store.membersOf((int) e[0], (int) e[1])));
+                } catch (IOException ex) {
+                    logger.warning("Could not read run " + e[0] + ": " + ex.getMessage());
+                    System.out.println("  run " + e[0] + ": could not be read");
+                }
+            }
+            System.out.println();
+        }
+        pause();
+    }
+
+    private  void printUnassigned(List<Participant> leftover) {
+        if (leftover.isEmpty()) return;
+
+        System.out.println("\n===============================================");
+        System.out.println("   PARTICIPANTS NOT ASSIGNED TO ANY TEAM");
+        System.out.println("===============================================\n");
+
+        for (Participant p : leftover) {
+            System.out.printf("ID: %s | %-20s | Skill: %2d | %s%n",
+                    p.getId(), p.getName(),
+                    p.getSkillLevel(),
+                    p.getPersonalityType());
+        }
+
+        System.out.println("\nReason:");
+        System.out.println("• Not enough remaining participants OR");
+        System.out.println("• Team constraints (Leader/Thinker/Role/Game) prevented valid team assignment\n");
+    }
+
 private  void viewFormedTeams() {
     logger.info("User requested to view formed teams.");
 
@@ -252,21 +473,66 @@ private  void viewFormedTeams() {
         return;
     }
 
-    System.out.println("\n" + "-".repeat(80));
-    System.out.println("                FORMED TEAMS (" + formedTeams.size() + " teams)");
-    System.out.println("-".repeat(80));
+    formedTeams.sort(Comparator.comparingInt(Team::getTeamNumber));
 
-    Collections.sort(formedTeams, Comparator.comparingInt(Team::getTeamNumber));
+    StringBuilder sb = new StringBuilder(4096);
+    int pages = (formedTeams.size() + TEAMS_PER_PAGE - 1) / TEAMS_PER_PAGE;
+    int page = 0;
 
+    while (true) {
+        sb.setLength(0);
+        sb.append('\n').append("-".repeat(80)).append('\n');
+        sb.append("                FORMED TEAMS (").append(formedTeams.size()).append(" teams)  page ")
+                .append(page + 1).append('/').append(pages).append('\n');
+        sb.append("-".repeat(80)).append('\n');
 
-    for (Team team : formedTeams) {
-        System.out.println(team);
-    }
+        int to = Math.min(formedTeams.size(), (page + 1) * TEAMS_PER_PAGE);
+        for (int i = page * TEAMS_PER_PAGE; i < to; i++) {
+            appendTeam(sb, formedTeams.get(i));
+        }
+        sb.append("-".repeat(80)).append('\n');
+        System.out.print(sb);
 
-    System.out.println("-".repeat(80) + "\n");
-    pause();
+        if (pages == 1) {
+            pause();
+            return;
+        }
+        System.out.print("[Enter] next  [p] prev  [g N] go to page  [q] back\n> ");
+        String cmd = sc.nextLine().trim().toLowerCase(Locale.ROOT);
+
+        if (cmd.isEmpty() || cmd.equals("n")) {
+            if (page + 1 >= pages) return;
+            page++;
+        } else if (cmd.equals("p")) {
+            page = Math.max(0, page - 1);
+        } else if (cmd.startsWith("g ")) {
+            try {
+                page = Math.max(0, Math.min(pages - 1, Integer.parseInt(cmd.substring(2).trim()) - 1));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid page number.");
+            }
+        } else if (cmd.equals("q")) {
+            return;
+        }
+    }
 }
 
+    private  void appendTeam(StringBuilder sb, Team team) {
+        sb.append("================================================================================\n");
+        sb.append(team.getSummary()).append('\n');
+        sb.append("--------------------------------------------------------------------------------\n");
+        for (Participant p : team.getMembers()) {
+            sb.append(" • ");
+            ParticipantBrowser.pad(sb, p.getName(), 20).append(" : ");
+            ParticipantBrowser.pad(sb, p.getPreferredGame(), 12).append(" : ");
+            ParticipantBrowser.pad(sb, p.getPreferredRole(), 12).append(" : Skill: ");
+            ParticipantBrowser.padLeft(sb, p.getSkillLevel(), 2).append(" : Score: ");
+            ParticipantBrowser.padLeft(sb, p.getPersonalityScore(), 3).append(" : ");
+            sb.append(p.getPersonalityType()).append('\n');
+        }
+        sb.append('\n');
+    }
+
     private  void saveTeamsToCSV() {
         if (formedTeams.isEmpty()) {
             logger.warning("Attempted to save teams before any were formed.");
@@ -277,6 +543,13 @@ private  void viewFormedTeams() {
         logger.info("Saving formed teams to CSV...");
         System.out.println("\nSaving formed teams to CSV!\n");
         CSVHandler.saveFormedTeams(formedTeams);
+
+        try {
+            QualityReport.of(formedTeams, teamSize).write("formed_teams_report.json");
+            System.out.println("Fairness report saved to formed_teams_report.json\n");
+        } catch (IOException e) {
+            logger.warning("Could not write fairness report: " + e.getMessage());
+        }
         pause();
     }
 
@@ -0,0 +1,135 @@
+package teammate;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Set of participant pairs that have shared a team in an earlier run.
+ *
+ * Each pair is packed into one long (smaller ID code in the high half) and kept in an
+ * open-addressing table of primitive longs, so a lookup is a hash and a few array reads
+ * with no boxing, however many runs the history covers. IDs of the usual "P042" form map
+ * to their number; any other ID maps to a hash, where a collision only costs a needless
+ * penalty, never a rule violation.
+ */
+public class PairHistory {
+
+    private static final long EMPTY = -1L;
+
+    private long[] table;
+    private int size;
+
+    public PairHistory() {
+        this(1024);
+    }
+
+    private PairHistory(int capacity) {
+        table = new long[Integer.highestOneBit(Math.max(16, capacity - 1)) << 1];
+        Arrays.fill(table, EMPTY);
+    }
+
+    static int code(String id) {
+        int n = id.length();
+        if (n > 1 && n <= 10 && id.charAt(0) == 'P') {
+            long value = 0;
+            boolean digits = true;
+            for (int i = 1; i < n && digits; i++) {
+                char c = id.charAt(i);
+                digits = c >= '0' && c <= '9';
+                value = value * 10 + (c - '0');
+            }
+            if (digits && value < 0x40000000L) return (int) value;
+        }
+        return (id.hashCode() & 0x3FFFFFFF) | 0x40000000;
+    }
+
+    static long key(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String a, String b) {
+        return containsKey(key(code(a), code(b)));
+    }
+
+    private boolean containsKey(long key) {
+        int mask = table.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long k = table[i];
+            if (k == key) return true;
+            if (k == EMPTY) return false;
+        }
+    }
+
+    /** True if the candidate has already been on a team with anyone in the list. */
+    public boolean sharedWithAny(Participant candidate, List<Participant> team) {
+        if (size == 0) return false;
+        int c = code(candidate.getId());
+        for (Participant p : team) {
+            if (containsKey(key(c, code(p.getId())))) return true;
+        }
+        return false;
+    }
+
+    /** Adds a packed pair; returns false if it was already present. */
+    boolean addKey(long key) {
+        if ((size + 1) * 2 > table.length) grow();
+        int mask = table.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long k = table[i];
+            if (k == key) return false;
+            if (k == EMPTY) {
+                table[i] = key;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        Arrays.fill(table, EMPTY);
+        size = 0;
+        for (long k : old) {
+            if (k != EMPTY) addKey(k);
+        }
+    }
+
+    /** Adds every pair of the team; newly seen pairs are also written to out when it is not null. */
+    public int addTeam(List<String> memberIds, DataOutputStream out) throws IOException {
+        int added = 0;
+        for (int i = 0; i < memberIds.size(); i++) {
+            int a = code(memberIds.get(i));
+            for (int j = i + 1; j < memberIds.size(); j++) {
+                long k = key(a, code(memberIds.get(j)));
+                if (addKey(k)) {
+                    added++;
+                    if (out != null) out.writeLong(k);
+                }
+            }
+        }
+        return added;
+    }
+
+    /** Reads a file of packed pairs as written through addTeam. */
+    public static PairHistory load(File file) throws IOException {
+        long bytes = file.length();
+        PairHistory history = new PairHistory((int) Math.min(1 << 28, Math.max(16, bytes / 8 * 2)));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            for (long i = 0; i < bytes / 8; i++) {
+                history.addKey(in.readLong());
+            }
+        }
+        return history;
+    }
+}
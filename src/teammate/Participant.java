@@ -1,12 +1,21 @@
 package teammate;
 
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Participant {
     private static final Logger logger = AppLogger.getLogger(Participant.class);
+
+    public static final List<String> GAMES = List.of("Chess", "FIFA", "CS:GO", "DOTA 2", "Valorant", "Basketball");
+    public static final List<String> ROLES = List.of("Strategist", "Attacker", "Defender", "Supporter", "Coordinator");
+
     private String id;
     private String name;
-    private String email;
+    // Email split into raw local-part bytes and a dictionary-shared domain
+    private byte[] emailLocal;
+    private String emailDomain;
     private String preferredGame;
     private int skillLevel;
     private String preferredRole;
@@ -18,23 +27,25 @@ public class Participant {
                        int skillLevel, String role, int score, String type) {
         this.id = id;
         this.name = name;
-        this.email = email;
-        this.preferredGame = game;
+        setEmail(email);
+        this.preferredGame = StringDictionary.canonical(game);
         this.skillLevel = skillLevel;
-        this.preferredRole = role;
+        this.preferredRole = StringDictionary.canonical(role);
         this.personalityScore = score;
-        this.personalityType = type;
-        logger.fine("Participant loaded from CSV: " + id + " (" + type + ")");
+        this.personalityType = StringDictionary.canonical(type);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Participant loaded from CSV: " + id + " (" + type + ")");
+        }
     }
 
     public Participant(String id, String name, String email, String game,
                        int skillLevel, String role, int rawTotal5Q) {
         this.id = id;
         this.name = name;
-        this.email = email;
-        this.preferredGame = game;
+        setEmail(email);
+        this.preferredGame = StringDictionary.canonical(game);
         this.skillLevel = skillLevel;
-        this.preferredRole = role;
+        this.preferredRole = StringDictionary.canonical(role);
         this.personalityScore = rawTotal5Q * 4;
         this.personalityType = classify(rawTotal5Q * 4);
 
@@ -43,7 +54,18 @@ public class Participant {
                 " | Type: " + personalityType);
     }
 
-    private String classify(int score) {
+    private void setEmail(String email) {
+        int at = email.lastIndexOf('@');
+        if (at < 0) {
+            this.emailLocal = StringDictionary.encode(email);
+            this.emailDomain = null;
+        } else {
+            this.emailLocal = StringDictionary.encode(email.substring(0, at));
+            this.emailDomain = StringDictionary.canonical(email.substring(at + 1));
+        }
+    }
+
+    public static String classify(int score) {
         if (score >= 90) return "Leader";
         else if (score >= 70) return "Balanced";
         else return "Thinker";
@@ -61,8 +83,33 @@ public class Participant {
         return name;
     }
 
+    // Builds a new String each call; bulk writers should use appendEmail instead
     public String getEmail() {
-        return email;
+        return appendEmail(new StringBuilder(emailLocal.length + 24)).toString();
+    }
+
+    // Writes the email straight from the encoded form; ASCII local parts need no decoding
+    public StringBuilder appendEmail(StringBuilder sb) {
+        byte[] local = emailLocal;
+        boolean ascii = true;
+        for (byte b : local) {
+            if (b < 0) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            for (byte b : local) sb.append((char) b);
+        } else {
+            sb.append(StringDictionary.decode(local));
+        }
+        if (emailDomain != null) sb.append('@').append(emailDomain);
+        return sb;
+    }
+
+    /** Trimmed, lower-case email used for duplicate checks. */
+    public String getEmailKey() {
+        return getEmail().trim().toLowerCase(Locale.ROOT);
     }
 
     public String getPreferredGame() {
@@ -92,8 +139,15 @@ public class Participant {
     }
 
     public String toCSVLine() {
-        return id + "," + name + "," + email + "," + preferredGame + "," +
-                skillLevel + "," + preferredRole + "," + personalityScore + "," + personalityType;
+        return appendCSVLine(new StringBuilder(96)).toString();
+    }
+
+    public StringBuilder appendCSVLine(StringBuilder sb) {
+        sb.append(id).append(',').append(name).append(',');
+        appendEmail(sb).append(',').append(preferredGame).append(',')
+                .append(skillLevel).append(',').append(preferredRole).append(',')
+                .append(personalityScore).append(',').append(personalityType);
+        return sb;
     }
 }
 
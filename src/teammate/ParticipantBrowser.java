@@ -0,0 +1,206 @@
+package teammate;
+
+import java.util.*;
+
+/**
+ * Paged, filterable view over a loaded participant list for OrganizerMode.
+ *
+ * Game, role and personality postings are built once per load, so a filter only walks
+ * the smallest matching posting list instead of the whole pool. Sort orders and their
+ * rank arrays are computed on first use and cached; a filtered view sorts just the ranks
+ * of its matches. Only the rows of the requested page are ever formatted, into a single
+ * reused StringBuilder.
+ *
+ * The browser pages over the list OrganizerMode already holds for formation rather than
+ * reading rows from the CSV, so browsing adds no I/O and stays in step with tail reloads.
+ */
+public class ParticipantBrowser {
+
+    public enum SortKey { ID, NAME, SKILL, SCORE }
+
+    private final List<Participant> participants;
+    private final Map<String, int[]> byGame;
+    private final Map<String, int[]> byRole;
+    private final Map<String, int[]> byType;
+    private final EnumMap<SortKey, int[]> sortOrders = new EnumMap<>(SortKey.class);
+    // ranks.get(key)[i] is the position of participant i in sortOrders.get(key)
+    private final EnumMap<SortKey, int[]> ranks = new EnumMap<>(SortKey.class);
+    private final StringBuilder sb = new StringBuilder(4096);
+
+    private String gameFilter, roleFilter, typeFilter;
+    private SortKey sortKey = SortKey.ID;
+    private int[] view;
+
+    public ParticipantBrowser(List<Participant> participants) {
+        this.participants = participants;
+        this.byGame = buildPostings(participants, Participant::getPreferredGame);
+        this.byRole = buildPostings(participants, Participant::getPreferredRole);
+        this.byType = buildPostings(participants, Participant::getPersonalityType);
+        this.view = order(SortKey.ID);
+    }
+
+    private interface Field {
+        String get(Participant p);
+    }
+
+    private static Map<String, int[]> buildPostings(List<Participant> list, Field field) {
+        Map<String, List<Integer>> tmp = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            tmp.computeIfAbsent(key(field.get(list.get(i))), k -> new ArrayList<>()).add(i);
+        }
+        Map<String, int[]> postings = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> e : tmp.entrySet()) {
+            postings.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return postings;
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // null or empty clears that filter
+    public void setFilter(String game, String role, String type) {
+        this.gameFilter = blankToNull(game);
+        this.roleFilter = blankToNull(role);
+        this.typeFilter = blankToNull(type);
+        rebuildView();
+    }
+
+    public void setSort(SortKey key) {
+        this.sortKey = key;
+        rebuildView();
+    }
+
+    public String describe() {
+        StringBuilder d = new StringBuilder();
+        if (gameFilter != null) d.append("game=").append(gameFilter).append(' ');
+        if (roleFilter != null) d.append("role=").append(roleFilter).append(' ');
+        if (typeFilter != null) d.append("type=").append(typeFilter).append(' ');
+        if (d.length() == 0) d.append("none ");
+        return "filter: " + d.toString().trim() + " | sort: " + sortKey.name().toLowerCase(Locale.ROOT);
+    }
+
+    public int size() {
+        return view.length;
+    }
+
+    public int pageCount(int pageSize) {
+        return Math.max(1, (view.length + pageSize - 1) / pageSize);
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : key(s);
+    }
+
+    private void rebuildView() {
+        int[] order = order(sortKey);
+        if (gameFilter == null && roleFilter == null && typeFilter == null) {
+            view = order;
+            return;
+        }
+
+        // Walk the smallest posting list; postings are ascending, so the others are binary searched
+        List<int[]> postings = new ArrayList<>(3);
+        if (gameFilter != null) postings.add(byGame.getOrDefault(gameFilter, new int[0]));
+        if (roleFilter != null) postings.add(byRole.getOrDefault(roleFilter, new int[0]));
+        if (typeFilter != null) postings.add(byType.getOrDefault(typeFilter, new int[0]));
+        postings.sort(Comparator.comparingInt(posting -> posting.length));
+        int[] smallest = postings.get(0);
+
+        // Sorting the matches' ranks puts them in sort order without touching the rest of the pool
+        int[] rank = rank(sortKey);
+        int[] matched = new int[smallest.length];
+        int count = 0;
+        for (int i : smallest) {
+            boolean inAll = true;
+            for (int p = 1; p < postings.size() && inAll; p++) {
+                inAll = Arrays.binarySearch(postings.get(p), i) >= 0;
+            }
+            if (inAll) matched[count++] = rank[i];
+        }
+        Arrays.sort(matched, 0, count);
+
+        int[] filtered = new int[count];
+        for (int r = 0; r < count; r++) filtered[r] = order[matched[r]];
+        view = filtered;
+    }
+
+    private int[] rank(SortKey key) {
+        return ranks.computeIfAbsent(key, k -> {
+            int[] order = order(k);
+            int[] rank = new int[order.length];
+            for (int r = 0; r < order.length; r++) rank[order[r]] = r;
+            return rank;
+        });
+    }
+
+    private int[] order(SortKey key) {
+        return sortOrders.computeIfAbsent(key, k -> {
+            Integer[] idx = new Integer[participants.size()];
+            for (int i = 0; i < idx.length; i++) idx[i] = i;
+            Comparator<Integer> cmp = switch (k) {
+                case ID -> idOrder();
+                case NAME -> Comparator.comparing(i -> participants.get(i).getName(), String.CASE_INSENSITIVE_ORDER);
+                case SKILL -> Comparator.comparingInt((Integer i) -> participants.get(i).getSkillLevel()).reversed();
+                case SCORE -> Comparator.comparingInt((Integer i) -> participants.get(i).getPersonalityScore()).reversed();
+            };
+            Arrays.sort(idx, cmp);
+            int[] out = new int[idx.length];
+            for (int i = 0; i < idx.length; i++) out[i] = idx[i];
+            return out;
+        });
+    }
+
+    // P-numbers by their number (P2 before P10), other IDs after them by text, then load order
+    private Comparator<Integer> idOrder() {
+        long[] numbers = new long[participants.size()];
+        for (int i = 0; i < numbers.length; i++) numbers[i] = idNumber(participants.get(i).getId());
+        return Comparator.comparingLong((Integer i) -> numbers[i])
+                .thenComparing(i -> participants.get(i).getId())
+                .thenComparingInt(i -> i);
+    }
+
+    private static long idNumber(String id) {
+        if (id == null || id.length() < 2 || id.charAt(0) != 'P') return Long.MAX_VALUE;
+        long n = 0;
+        for (int c = 1; c < id.length(); c++) {
+            char ch = id.charAt(c);
+            if (ch < '0' || ch > '9' || n > Long.MAX_VALUE / 10 - 9) return Long.MAX_VALUE;
+            n = n * 10 + (ch - '0');
+        }
+        return n;
+    }
+
+    // Formats only the rows of the given page (0-based)
+    public String renderPage(int page, int pageSize) {
+        sb.setLength(0);
+        int from = page * pageSize;
+        int to = Math.min(view.length, from + pageSize);
+
+        for (int r = from; r < to; r++) {
+            Participant p = participants.get(view[r]);
+            pad(sb, p.getId(), 6).append(" | ");
+            pad(sb, p.getName(), 20).append(" | ");
+            pad(sb, p.getPreferredGame(), 10).append(" | ");
+            pad(sb, p.getPreferredRole(), 11).append(" | Skill: ");
+            padLeft(sb, p.getSkillLevel(), 2).append(" | Score: ");
+            padLeft(sb, p.getPersonalityScore(), 3).append(" | ");
+            sb.append(p.getPersonalityType()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static StringBuilder pad(StringBuilder sb, String value, int width) {
+        sb.append(value);
+        for (int i = value.length(); i < width; i++) sb.append(' ');
+        return sb;
+    }
+
+    static StringBuilder padLeft(StringBuilder sb, int value, int width) {
+        int digits = value < 0 ? 2 : 1;
+        for (int v = Math.abs(value); v >= 10; v /= 10) digits++;
+        for (int i = digits; i < width; i++) sb.append(' ');
+        return sb.append(value);
+    }
+}
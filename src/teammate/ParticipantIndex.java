@@ -0,0 +1,388 @@
+package teammate;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.logging.Logger;
+
+/**
+ * Persistent lookup index kept next to the participants CSV (e.g. participants_sample.csv.idx).
+ *
+ * The index file is an append-only log of (row offset, row end, ID, email) entries. Opening it
+ * reads only that log into two hash tables, so ID generation, duplicate-email checks and single
+ * participant reads are O(1) without parsing the CSV. Rows appended to the CSV by other writers
+ * are picked up by scanning just the bytes past the last indexed row. The header keeps a CRC of
+ * the first and last few KB of the indexed bytes, so a CSV that shrank or was rewritten (even
+ * to a longer or equal length) causes a full rebuild instead of trusting stale offsets.
+ *
+ * Several writers (the server, survey sessions, other processes) may share one CSV. Appends
+ * hold a lock on a sidecar .lock file for the whole refresh-check-write step, so IDs and
+ * emails are always checked against every row already in the file.
+ */
+public class ParticipantIndex {
+
+    private static final Logger logger = AppLogger.getLogger(ParticipantIndex.class);
+
+    private static final int MAGIC = 0x544D4958; // "TMIX"
+    private static final int VERSION = 2;
+    private static final int PROBE_BYTES = 4096;
+    private static final String HEADER =
+            "ID,Name,Email,PreferredGame,SkillLevel,PreferredRole,PersonalityScore,PersonalityType";
+
+    // One monitor per CSV in this JVM; FileLock alone throws for a second channel in the same JVM
+    private static final Map<String, Object> FILE_MONITORS = new ConcurrentHashMap<>();
+
+    private final File csvFile;
+    private final File indexFile;
+    private final File lockFile;
+    private final Object fileMonitor;
+    private final Map<String, Long> offsetById = new HashMap<>();
+    private final Map<String, Long> offsetByEmail = new HashMap<>();
+    private long indexedEnd = 0;
+    private long indexedProbe = 0;
+    private int highestId = 0;
+
+    private ParticipantIndex(String csvPath) {
+        this.csvFile = new File(csvPath);
+        this.indexFile = indexFileFor(csvPath);
+        this.lockFile = new File(csvPath + ".lock");
+        this.fileMonitor = FILE_MONITORS.computeIfAbsent(csvFile.getAbsoluteFile().toPath().normalize().toString(),
+                k -> new Object());
+    }
+
+    public static File indexFileFor(String csvPath) {
+        return new File(csvPath + ".idx");
+    }
+
+    public static ParticipantIndex open(String csvPath) throws IOException {
+        ParticipantIndex index = new ParticipantIndex(csvPath);
+        index.load();
+        return index;
+    }
+
+    private void load() throws IOException {
+        if (!csvFile.exists()) {
+            rebuild();
+            return;
+        }
+
+        if (indexFile.exists() && readIndexFile()) {
+            long csvLength = csvFile.length();
+            if (csvLength >= indexedEnd && probe(indexedEnd) == indexedProbe) {
+                if (csvLength == indexedEnd) {
+                    logger.fine("Participant index up to date: " + offsetById.size() + " entries");
+                } else {
+                    logger.info("Indexing " + (csvLength - indexedEnd) + " bytes appended to " + csvFile);
+                    scanFrom(indexedEnd);
+                }
+                return;
+            }
+            logger.info("Indexed part of " + csvFile + " changed since it was indexed");
+        }
+        rebuild();
+    }
+
+    // CRC32 of the first and last PROBE_BYTES of the first end bytes; -1 if the file is shorter
+    private long probe(long end) throws IOException {
+        CRC32 crc = new CRC32();
+        if (end == 0) return crc.getValue();
+        try (RandomAccessFile raf = new RandomAccessFile(csvFile, "r")) {
+            if (raf.length() < end) return -1;
+            byte[] buffer = new byte[(int) Math.min(PROBE_BYTES, end)];
+            raf.readFully(buffer);
+            crc.update(buffer);
+            raf.seek(end - buffer.length);
+            raf.readFully(buffer);
+            crc.update(buffer);
+        }
+        return crc.getValue();
+    }
+
+    private boolean readIndexFile() {
+        offsetById.clear();
+        offsetByEmail.clear();
+        highestId = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            indexedEnd = in.readLong();
+            indexedProbe = in.readLong();
+
+            while (true) {
+                long offset;
+                try {
+                    offset = in.readLong();
+                } catch (EOFException eof) {
+                    break;
+                }
+                long end = in.readLong();
+                String id = in.readUTF();
+                String email = in.readUTF();
+                put(id, email, offset);
+                // Entries past the header's end were written without their header update
+                if (end > indexedEnd) return false;
+            }
+            return true;
+
+        } catch (IOException e) {
+            logger.warning("Participant index unreadable, rebuilding: " + e.getMessage());
+            offsetById.clear();
+            offsetByEmail.clear();
+            highestId = 0;
+            return false;
+        }
+    }
+
+    private void rebuild() throws IOException {
+        logger.info("Rebuilding participant index for " + csvFile);
+        offsetById.clear();
+        offsetByEmail.clear();
+        highestId = 0;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(0L);
+            out.writeLong(probe(0));
+        }
+        indexedEnd = 0;
+        indexedProbe = probe(0);
+
+        if (csvFile.exists()) {
+            scanFrom(0);
+        }
+    }
+
+    // Reads raw lines from the given byte offset and records only the ID and email columns
+    private void scanFrom(long start) throws IOException {
+        List<long[]> spans = new ArrayList<>();
+        List<String[]> keys = new ArrayList<>();
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(csvFile), 1 << 16)) {
+            in.skipNBytes(start);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            long pos = start;
+            long lineStart = start;
+            int b;
+
+            while ((b = in.read()) != -1) {
+                pos++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = line.toString(StandardCharsets.UTF_8).trim();
+                line.reset();
+
+                if (!text.isEmpty() && !text.startsWith("ID,")) {
+                    String[] data = text.split(",", 4);
+                    if (data.length >= 3) {
+                        spans.add(new long[]{lineStart, pos});
+                        keys.add(new String[]{data[0].trim(), data[2].trim()});
+                    }
+                }
+                lineStart = pos;
+            }
+            // A trailing row without a newline is left for the next scan
+            if (line.size() == 0) {
+                indexedEnd = pos;
+            } else {
+                indexedEnd = lineStart;
+            }
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            put(keys.get(i)[0], keys.get(i)[1], spans.get(i)[0]);
+        }
+        writeEntries(spans, keys);
+    }
+
+    private void put(String id, String email, long offset) {
+        offsetById.put(id, offset);
+        if (!email.isEmpty()) {
+            offsetByEmail.putIfAbsent(email.toLowerCase(Locale.ROOT), offset);
+        }
+        if (id.length() > 1 && id.charAt(0) == 'P') {
+            try {
+                highestId = Math.max(highestId, Integer.parseInt(id.substring(1)));
+            } catch (NumberFormatException ignored) { }
+        }
+    }
+
+    private void writeEntries(List<long[]> spans, List<String[]> keys) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)))) {
+            for (int i = 0; i < spans.size(); i++) {
+                out.writeLong(spans.get(i)[0]);
+                out.writeLong(spans.get(i)[1]);
+                out.writeUTF(keys.get(i)[0]);
+                out.writeUTF(keys.get(i)[1]);
+            }
+        }
+        // Header keeps the covered length even if no rows were added (e.g. header-only CSV)
+        indexedProbe = probe(indexedEnd);
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            raf.seek(8);
+            raf.writeLong(indexedEnd);
+            raf.writeLong(indexedProbe);
+        }
+    }
+
+    public synchronized String nextId() {
+        return String.format("P%03d", highestId + 1);
+    }
+
+    public synchronized boolean containsId(String id) {
+        return offsetById.containsKey(id);
+    }
+
+    public synchronized boolean containsEmail(String email) {
+        return offsetByEmail.containsKey(email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public synchronized int size() {
+        return offsetById.size();
+    }
+
+    // Seeks straight to the indexed row; returns null for unknown IDs
+    public synchronized Participant find(String id) throws IOException {
+        Participant p = readRow(id);
+        if (p != null && p.getId().equals(id)) return p;
+        if (!offsetById.containsKey(id)) return null;
+
+        // The row moved, e.g. the CSV was rewritten by another tool; re-index and look again
+        logger.warning("Participant index entry for " + id + " is stale, rebuilding " + indexFile);
+        withFileLock(() -> {
+            rebuild();
+            return null;
+        });
+        p = readRow(id);
+        return p != null && p.getId().equals(id) ? p : null;
+    }
+
+    private Participant readRow(String id) throws IOException {
+        Long offset = offsetById.get(id);
+        if (offset == null || !csvFile.exists()) return null;
+
+        try (RandomAccessFile raf = new RandomAccessFile(csvFile, "r")) {
+            raf.seek(offset);
+            String line = raf.readLine();
+            if (line == null) return null;
+            return CSVHandler.parseLine(new String(line.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Registers participants in one step under the CSV lock: rows other writers appended are
+     * indexed first, participants whose email is already registered (or repeated in this
+     * list) are rejected, and the rest get the next free P-numbers and are appended to the
+     * CSV and the index in one write each. Returns the stored participants in input order,
+     * with null for every rejected one. Incoming IDs are ignored.
+     */
+    public synchronized List<Participant> append(List<Participant> participants) throws IOException {
+        List<Participant> stored = new ArrayList<>(Collections.nCopies(participants.size(), (Participant) null));
+        if (participants.isEmpty()) return stored;
+
+        return withFileLock(() -> {
+            refresh();
+            List<Participant> accepted = new ArrayList<>(participants.size());
+            Set<String> batchEmails = new HashSet<>();
+            for (int i = 0; i < participants.size(); i++) {
+                Participant p = participants.get(i);
+                String email = p.getEmailKey();
+                if (!email.isEmpty() && (offsetByEmail.containsKey(email) || !batchEmails.add(email))) continue;
+                String id;
+                do {
+                    id = String.format("P%03d", ++highestId);
+                } while (offsetById.containsKey(id));
+                Participant numbered = new Participant(id, p.getName(), p.getEmail(), p.getPreferredGame(),
+                        p.getSkillLevel(), p.getPreferredRole(), p.getPersonalityScore(), p.getPersonalityType());
+                stored.set(i, numbered);
+                accepted.add(numbered);
+            }
+            write(accepted);
+            return stored;
+        });
+    }
+
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    // Runs the action holding this JVM's monitor for the CSV and the cross-process file lock
+    private <T> T withFileLock(LockedAction<T> action) throws IOException {
+        synchronized (fileMonitor) {
+            try (FileChannel channel = FileChannel.open(lockFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return action.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    // Brings the index up to date with the file; caller holds the CSV lock
+    private void refresh() throws IOException {
+        // A last row without a newline is ended here so it is indexed before anything is checked
+        if (csvFile.exists() && csvFile.length() > 0 && !endsWithNewline()) {
+            try (FileOutputStream out = new FileOutputStream(csvFile, true)) {
+                out.write('\n');
+            }
+        }
+        if (!csvFile.exists() || csvFile.length() != indexedEnd || probe(indexedEnd) != indexedProbe) {
+            load();
+        }
+    }
+
+    private void write(List<Participant> participants) throws IOException {
+        if (participants.isEmpty()) return;
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(participants.size() * 96);
+        long base = csvFile.exists() ? csvFile.length() : 0;
+        if (base == 0) {
+            buffer.writeBytes((HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<long[]> spans = new ArrayList<>(participants.size());
+        List<String[]> keys = new ArrayList<>(participants.size());
+        for (Participant p : participants) {
+            long start = base + buffer.size();
+            buffer.writeBytes((p.toCSVLine() + "\n").getBytes(StandardCharsets.UTF_8));
+            spans.add(new long[]{start, base + buffer.size()});
+            keys.add(new String[]{p.getId(), p.getEmail()});
+        }
+
+        try (FileOutputStream out = new FileOutputStream(csvFile, true)) {
+            buffer.writeTo(out);
+        }
+
+        indexedEnd = base + buffer.size();
+        for (int i = 0; i < keys.size(); i++) {
+            put(keys.get(i)[0], keys.get(i)[1], spans.get(i)[0]);
+        }
+        writeEntries(spans, keys);
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(csvFile, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    // Called after a full rewrite of the CSV, which invalidates every stored offset
+    public static void invalidate(String csvPath) {
+        File idx = indexFileFor(csvPath);
+        if (idx.exists() && !idx.delete()) {
+            logger.warning("Could not delete stale index " + idx);
+        }
+    }
+}
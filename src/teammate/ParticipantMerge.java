@@ -0,0 +1,164 @@
+package teammate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Merges several registration files (one per campus, say) into one pool.
+ *
+ * Files are parsed in parallel, one task per file. While parsing, every row is offered to
+ * a shared ConcurrentHashMap keyed by lower-cased email; the map keeps the row that comes
+ * first in file order (earlier file, then earlier row), whichever thread gets there first.
+ * One ordered pass over all rows then keeps the winners and gives each row whose ID was
+ * already used a fresh P-number above the highest one in any file, the same numbering
+ * CSVHandler.generateNextId continues from. Parsing runs per file and the merge touches each
+ * row once, so the work follows the total number of bytes, not the number of files.
+ *
+ * Rows without an email are never treated as duplicates.
+ */
+public class ParticipantMerge {
+
+    private static final Logger logger = AppLogger.getLogger(ParticipantMerge.class);
+
+    /** Merged pool plus what the merge changed. */
+    public static class Result {
+        private final List<Participant> participants;
+        private final int rowsRead;
+        private final int duplicates;
+        private final int remapped;
+
+        Result(List<Participant> participants, int rowsRead, int duplicates, int remapped) {
+            this.participants = participants;
+            this.rowsRead = rowsRead;
+            this.duplicates = duplicates;
+            this.remapped = remapped;
+        }
+
+        public List<Participant> getParticipants() {
+            return participants;
+        }
+
+        public int getRowsRead() {
+            return rowsRead;
+        }
+
+        /** Rows dropped because an earlier row had the same email. */
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        /** Rows kept under a new ID because theirs was already taken. */
+        public int getRemapped() {
+            return remapped;
+        }
+
+        @Override
+        public String toString() {
+            return "rows=" + rowsRead + " merged=" + participants.size() + " duplicates=" + duplicates
+                    + " remapped=" + remapped;
+        }
+    }
+
+    // Position of a row across all files, used to pick the earliest of several with one email
+    private static final class Origin {
+        final int file;
+        final int row;
+        final Participant participant;
+
+        Origin(int file, int row, Participant participant) {
+            this.file = file;
+            this.row = row;
+            this.participant = participant;
+        }
+
+        boolean before(Origin other) {
+            return file < other.file || (file == other.file && row < other.row);
+        }
+    }
+
+    private ParticipantMerge() { }
+
+    public static Result merge(List<String> filePaths) {
+        ConcurrentHashMap<String, Origin> byEmail = new ConcurrentHashMap<>();
+        List<List<Participant>> files = new ArrayList<>(filePaths.size());
+        int threads = Math.max(1, Math.min(filePaths.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService readers = Executors.newFixedThreadPool(threads);
+        int highestId = 0;
+        try {
+            List<Future<int[]>> parsed = new ArrayList<>();
+            for (int f = 0; f < filePaths.size(); f++) {
+                final int file = f;
+                final List<Participant> rows = new ArrayList<>();
+                files.add(rows);
+                parsed.add(readers.submit(() -> {
+                    rows.addAll(CSVHandler.readRows(filePaths.get(file)));
+                    int highest = 0;
+                    for (int r = 0; r < rows.size(); r++) {
+                        Participant p = rows.get(r);
+                        highest = Math.max(highest, idNumber(p.getId()));
+                        String key = emailKey(p);
+                        if (key == null) continue;
+                        Origin origin = new Origin(file, r, p);
+                        byEmail.merge(key, origin, (kept, offered) -> offered.before(kept) ? offered : kept);
+                    }
+                    return new int[]{highest};
+                }));
+            }
+            for (Future<int[]> f : parsed) highestId = Math.max(highestId, f.get()[0]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while reading registration files", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("could not read registration files: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            readers.shutdown();
+        }
+
+        int total = 0;
+        for (List<Participant> rows : files) total += rows.size();
+        List<Participant> merged = new ArrayList<>(byEmail.size());
+        Set<String> usedIds = new HashSet<>(total * 2);
+        int duplicates = 0, remapped = 0;
+        int nextId = highestId;
+
+        for (List<Participant> rows : files) {
+            for (Participant p : rows) {
+                String key = emailKey(p);
+                if (key != null && byEmail.get(key).participant != p) {
+                    duplicates++;
+                    continue;
+                }
+                if (!usedIds.add(p.getId())) {
+                    String id;
+                    do {
+                        id = String.format("P%03d", ++nextId);
+                    } while (!usedIds.add(id));
+                    p = new Participant(id, p.getName(), p.getEmail(), p.getPreferredGame(), p.getSkillLevel(),
+                            p.getPreferredRole(), p.getPersonalityScore(), p.getPersonalityType());
+                    remapped++;
+                }
+                merged.add(p);
+            }
+        }
+
+        Result result = new Result(merged, total, duplicates, remapped);
+        logger.info("Merged " + filePaths.size() + " files: " + result);
+        return result;
+    }
+
+    private static String emailKey(Participant p) {
+        String email = p.getEmailKey();
+        return email.isEmpty() ? null : email;
+    }
+
+    // Numeric part of a P-number, or 0 for IDs in another format
+    private static int idNumber(String id) {
+        if (id == null || id.length() < 2 || id.charAt(0) != 'P') return 0;
+        try {
+            return Integer.parseInt(id.substring(1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -1,13 +1,38 @@
 package teammate;
 
+import java.io.IOException;
 import java.util.Scanner;
-import java.util.List;
+import java.util.concurrent.*;
 import java.util.logging.Logger;
 
 public class ParticipantMode implements MenuHandler {
 
     private static final Logger logger = AppLogger.getLogger(ParticipantMode.class);
-    private  final Scanner sc = new Scanner(System.in);
+
+    // One intake pipeline shared by every survey session in this JVM
+    private static final int INTAKE_CAPACITY = 1024;
+    private static ParticipantIndex index;
+    private static RegistrationBatcher intake;
+
+    private  final Scanner sc;
+
+    public ParticipantMode() {
+        this(new Scanner(System.in));
+    }
+
+    // Sessions can be driven from any input, e.g. several simulated front-ends at once
+    public ParticipantMode(Scanner sc) {
+        this.sc = sc;
+    }
+
+    static synchronized RegistrationBatcher intake() throws IOException {
+        if (intake == null) {
+            index = ParticipantIndex.open(CSVHandler.getDefaultFile());
+            intake = RegistrationBatcher.start(index, INTAKE_CAPACITY,
+                    created -> logger.info("Registered " + created.size() + " participant(s)."));
+        }
+        return intake;
+    }
 
     @Override
     public void showMenu() {
@@ -20,8 +45,24 @@ public class ParticipantMode implements MenuHandler {
         logger.info("Participant survey started.");
         System.out.println("\n=== Personality & Preference Survey ===\n");
 
+        RegistrationBatcher batcher;
+        try {
+            batcher = intake();
+        } catch (IOException e) {
+            logger.severe("Could not open participant index: " + e.getMessage());
+            System.out.println("ERROR: Participant records are unavailable right now.\n");
+            return;
+        }
+
         String name = readName();
         String email = readEmail();
+        if (index.containsEmail(email)) {
+            logger.warning("Duplicate registration attempt: " + email);
+            System.out.println("\nThis email is already registered. Each participant can only submit the survey once.\n");
+            System.out.println("Press Enter to return to main menu...");
+            sc.nextLine();
+            return;
+        }
 
         System.out.println("\nRate each statement (1 = Strongly Disagree, 5 = Strongly Agree):");
         int q1 = askQuestion("1. I enjoy taking the lead in group situations");
@@ -36,18 +77,16 @@ public class ParticipantMode implements MenuHandler {
         System.out.println("\nChoose your preferred game:");
         System.out.println("1. Chess     2. FIFA     3. CS:GO     4. DOTA 2     5. Valorant     6. Basketball");
         System.out.print("Enter number (1-6): ");
-        String[] games = {"", "Chess", "FIFA", "CS:GO", "DOTA 2", "Valorant", "Basketball"};
         int gameChoice = readIntInRange(1, 6);
-        String game = games[gameChoice];
+        String game = Participant.GAMES.get(gameChoice - 1);
 
         logger.info("Game selected: " + game);
 
         System.out.println("\nChoose your preferred role:");
         System.out.println("1. Strategist   2. Attacker   3. Defender   4. Supporter   5. Coordinator");
         System.out.print("Enter number (1-5): ");
-        String[] roles = {"", "Strategist", "Attacker", "Defender", "Supporter", "Coordinator"};
         int roleChoice = readIntInRange(1, 5);
-        String role = roles[roleChoice];
+        String role = Participant.ROLES.get(roleChoice - 1);
 
         logger.info("Role selected: " + role);
 
@@ -55,14 +94,32 @@ public class ParticipantMode implements MenuHandler {
         int skill = readIntInRange(1, 10);
         logger.info("Skill level selected: " + skill);
 
-        List<Participant> all = CSVHandler.loadParticipants();
-        String newId = CSVHandler.generateNextId(all);
-
-
-        Participant newParticipant = new Participant(newId, name, email, game, skill, role, rawTotal);
-
-        all.add(newParticipant);
-        CSVHandler.saveAllParticipants(all);
+        // The writer thread assigns the ID and saves this together with other pending surveys
+        Participant newParticipant;
+        try {
+            newParticipant = batcher.submit(name, email, game, skill, role, rawTotal, 5, TimeUnit.SECONDS)
+                    .get(30, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RegistrationBatcher.DuplicateEmailException) {
+                logger.warning("Duplicate registration attempt: " + email);
+                System.out.println("\nThis email was registered while you were filling in the survey.\n");
+            } else if (e.getCause() instanceof IllegalArgumentException) {
+                logger.warning("Registration rejected for " + email + ": " + e.getCause().getMessage());
+                System.out.println("\nERROR: Your survey could not be saved: " + e.getCause().getMessage() + "\n");
+            } else {
+                logger.severe("Failed to save participant " + email + ": " + e.getCause().getMessage());
+                System.out.println("\nERROR: Your survey could not be saved. Please try again.\n");
+            }
+            return;
+        } catch (TimeoutException e) {
+            logger.severe("Registration timed out for " + email);
+            System.out.println("\nERROR: Saving is taking too long. Please try again later.\n");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        String newId = newParticipant.getId();
 
         logger.info("Participant saved: " + newId + " (" + name + ")");
 
@@ -0,0 +1,258 @@
+package teammate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Follows a participant CSV while registrations keep appending to it, so the organizer's
+ * pool stays current without parsing the whole file again.
+ *
+ * The first read parses the whole file, like a full load, and remembers the offset of its
+ * last complete line; a last row without a newline is returned too and remembered, so it
+ * is not returned again once an appender ends it with a newline. After that, a
+ * WatchService on the file's directory wakes a daemon thread whenever the file changes,
+ * and only the bytes past the offset are read, split into complete lines and parsed. A
+ * line still being written (no newline yet) waits for the next change. The last few bytes
+ * before the offset are kept and compared on every read: if the file got shorter or those
+ * bytes changed, the file was rewritten (e.g. by saveAllParticipants) and is parsed again
+ * from the start.
+ *
+ * New rows go through the same ImportValidator stage as a full load. The organizer picks
+ * them up with {@link #drain()}.
+ */
+public class ParticipantTail implements AutoCloseable {
+
+    private static final Logger logger = AppLogger.getLogger(ParticipantTail.class);
+
+    // Bytes before the offset that must be unchanged for a read to count as an append
+    private static final int CHECK_BYTES = 64;
+    private static final int READ_CHUNK = 1 << 16;
+
+    /** Rows found since the last drain; reloaded means they replace the pool instead of extending it. */
+    public static class Changes {
+        private final boolean reloaded;
+        private final List<Participant> rows;
+
+        Changes(boolean reloaded, List<Participant> rows) {
+            this.reloaded = reloaded;
+            this.rows = rows;
+        }
+
+        public boolean isReloaded() {
+            return reloaded;
+        }
+
+        public List<Participant> getRows() {
+            return rows;
+        }
+
+        public boolean isEmpty() {
+            return !reloaded && rows.isEmpty();
+        }
+    }
+
+    private final Path file;
+    private long offset;
+    private byte[] check = new byte[0];
+    // Last line of a full read that had no newline yet; it was already returned
+    private byte[] deliveredTail = null;
+
+    // Collected by the watcher thread until drained
+    private boolean pendingReload;
+    private List<Participant> pending = new ArrayList<>();
+
+    private WatchService watcher;
+    private Thread watchThread;
+    private volatile boolean closed;
+    private ImportValidator.Report lastReport;
+
+    public ParticipantTail(String filePath) {
+        this.file = Path.of(filePath).toAbsolutePath();
+    }
+
+    /** Parses the whole file and starts following it. */
+    public synchronized List<Participant> open() throws IOException {
+        List<Participant> all = readFrom(0, true);
+        pending = new ArrayList<>();
+        pendingReload = false;
+        startWatching();
+        logger.info("Following " + file + " from byte " + offset + " (" + all.size() + " participants).");
+        return all;
+    }
+
+    private void startWatching() throws IOException {
+        if (watcher != null) return;
+        watcher = file.getFileSystem().newWatchService();
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchThread = new Thread(this::watch, "participant-tail");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void watch() {
+        Path name = file.getFileName();
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watcher.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            if (key == null) continue;
+            boolean ours = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) ours = true;
+            }
+            key.reset();
+            if (ours) {
+                try {
+                    poll();
+                } catch (IOException e) {
+                    logger.warning("Could not read appended rows of " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Reads whatever was appended since the last read; also called by the watcher thread. */
+    public synchronized void poll() throws IOException {
+        if (!Files.exists(file)) return;
+        if (rewritten() || tailChanged()) {
+            logger.info(file + " was rewritten, parsing it again.");
+            pending = readFrom(0, true);
+            pendingReload = true;
+            return;
+        }
+        List<Participant> added = readFrom(offset, false);
+        if (!added.isEmpty()) {
+            pending.addAll(added);
+            logger.info("Picked up " + added.size() + " appended participants from " + file);
+        }
+    }
+
+    /** Changes collected since the previous call. */
+    public synchronized Changes drain() {
+        Changes changes = new Changes(pendingReload, pending);
+        pending = new ArrayList<>();
+        pendingReload = false;
+        return changes;
+    }
+
+    // Validation outcome of the most recent read that found rows
+    public synchronized ImportValidator.Report getLastImportReport() {
+        return lastReport;
+    }
+
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    private boolean rewritten() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < offset) return true;
+            ByteBuffer buffer = ByteBuffer.allocate(check.length);
+            channel.read(buffer, offset - check.length);
+            return !Arrays.equals(buffer.array(), check);
+        }
+    }
+
+    // The returned unterminated last row must still be the start of what follows the offset;
+    // if it was changed rather than just ended with a newline, the row we returned is stale
+    private boolean tailChanged() throws IOException {
+        if (deliveredTail == null) return false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long available = channel.size() - offset;
+            if (available < deliveredTail.length) return true;
+            ByteBuffer now = ByteBuffer.allocate((int) Math.min(available, deliveredTail.length + 2));
+            channel.read(now, offset);
+            byte[] bytes = Arrays.copyOf(now.array(), now.position());
+            if (!Arrays.equals(bytes, 0, deliveredTail.length, deliveredTail, 0, deliveredTail.length)) return true;
+            // Same bytes: unchanged, or ended with a newline (CRLF allowed); anything else means it grew
+            if (bytes.length == deliveredTail.length) return false;
+            byte next = bytes[deliveredTail.length];
+            return next != '\n' && next != '\r';
+        }
+    }
+
+    // Parses complete lines from `from` to the end and moves the offset past the last one.
+    // A full read also parses a last line without a newline, as BufferedReader would.
+    private List<Participant> readFrom(long from, boolean full) throws IOException {
+        List<Participant> rows = new ArrayList<>();
+        byte[] skip = full ? null : deliveredTail;
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        long position = from;
+        long lineStart = from;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+            while (channel.read(buffer, position) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '\n') {
+                        if (skip == null) {
+                            parse(line, lineStart == 0, rows);
+                        }
+                        // tailChanged() made sure the first line is the already returned row
+                        skip = null;
+                        line.reset();
+                        lineStart = position;
+                    } else {
+                        line.write(b);
+                    }
+                }
+                buffer.clear();
+            }
+            // Everything up to lineStart is consumed; a partial last line is read again next time
+            if (full) {
+                deliveredTail = null;
+                if (line.size() > 0) {
+                    parse(line, lineStart == 0, rows);
+                    deliveredTail = line.toByteArray();
+                }
+            } else if (skip == null) {
+                deliveredTail = null;
+            }
+            offset = lineStart;
+            check = new byte[(int) Math.min(CHECK_BYTES, offset)];
+            channel.read(ByteBuffer.wrap(check), offset - check.length);
+        }
+        if (!rows.isEmpty()) {
+            ImportValidator.Report report = ImportValidator.validate(rows);
+            if (report.rejected() > 0 || report.reclassified() > 0) {
+                logger.warning("Import check on rows from byte " + from + ": " + report);
+            }
+            lastReport = report;
+        }
+        return rows;
+    }
+
+    private static void parse(ByteArrayOutputStream bytes, boolean firstLine, List<Participant> into) {
+        String line = bytes.toString(StandardCharsets.UTF_8);
+        if (line.endsWith("\r")) line = line.substring(0, line.length() - 1);
+        if (line.isBlank() || (firstLine && line.startsWith("ID,"))) return;
+        try {
+            into.add(CSVHandler.parseLine(line));
+        } catch (RuntimeException e) {
+            logger.warning("Skipping malformed appended row: " + line + " | " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                logger.fine("Watch service close failed: " + e.getMessage());
+            }
+        }
+    }
+}
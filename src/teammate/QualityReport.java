@@ -0,0 +1,238 @@
+package teammate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Fairness and quality figures for a set of formed teams, for dashboards.
+ *
+ * Teams are fed one at a time (so it also works on streamed output) and every figure is
+ * kept in primitive accumulators: per-team rows are appended to a growable double array,
+ * global sums/histograms are plain long arrays, and game/role counts use small per-team
+ * int arrays indexed through a tiny name-to-slot map. Total work is linear in members.
+ */
+public class QualityReport {
+
+    private static final Logger logger = AppLogger.getLogger(QualityReport.class);
+
+    // Per-team columns, stored flat in `rows`
+    private static final String[] TEAM_COLUMNS = {"team", "members", "avg_skill", "skill_variance",
+            "avg_score", "score_variance", "distinct_roles", "max_same_game", "leaders", "thinkers",
+            "leader_ok", "thinker_slack"};
+    private static final int COLS = TEAM_COLUMNS.length;
+
+    private final int teamSize;
+    private final TeamRules rules;
+    private double[] rows = new double[64 * COLS];
+    private int teams;
+
+    private final long[] skillHistogram = new long[11]; // index = skill level 0..10
+    private final long[] teamAvgHistogram = new long[11]; // team average rounded down
+    private long members;
+    private double skillSum, skillSqSum, scoreSum, scoreSqSum;
+    private double teamAvgSum, teamAvgSqSum;
+    private double minTeamAvg = Double.MAX_VALUE, maxTeamAvg = -Double.MAX_VALUE;
+    private int teamsWithRoleCoverage, teamsAtGameLimit, teamsAtThinkerLimit, teamsBreakingRules;
+
+    private final Map<String, Integer> gameSlots = new HashMap<>();
+    private final Map<String, Integer> roleSlots = new HashMap<>();
+    private int[] gameCounts = new int[8];
+    private int[] roleCounts = new int[8];
+
+    public QualityReport(int teamSize) {
+        this(teamSize, TeamRules.getDefault());
+    }
+
+    public QualityReport(int teamSize, TeamRules rules) {
+        this.teamSize = teamSize;
+        this.rules = rules;
+    }
+
+    public static QualityReport of(List<Team> teams, int teamSize) {
+        return of(teams, teamSize, TeamRules.getDefault());
+    }
+
+    public static QualityReport of(List<Team> teams, int teamSize, TeamRules rules) {
+        QualityReport report = new QualityReport(teamSize, rules);
+        for (Team t : teams) report.add(t);
+        return report;
+    }
+
+    public void add(Team team) {
+        List<Participant> list = team.getMembers();
+        int n = list.size();
+        if (n == 0) return;
+
+        Arrays.fill(gameCounts, 0);
+        Arrays.fill(roleCounts, 0);
+        double s = 0, sq = 0, sc = 0, scq = 0;
+        int leaders = 0, thinkers = 0, distinctRoles = 0, maxGame = 0;
+
+        for (Participant p : list) {
+            int skill = p.getSkillLevel();
+            int score = p.getPersonalityScore();
+            s += skill;
+            sq += (double) skill * skill;
+            sc += score;
+            scq += (double) score * score;
+            skillHistogram[Math.max(0, Math.min(10, skill))]++;
+
+            String type = p.getPersonalityType();
+            if ("Leader".equals(type)) leaders++;
+            else if ("Thinker".equals(type)) thinkers++;
+
+            int g = slot(gameSlots, p.getPreferredGame(), true);
+            if (++gameCounts[g] > maxGame) maxGame = gameCounts[g];
+            int r = slot(roleSlots, p.getPreferredRole(), false);
+            if (roleCounts[r]++ == 0) distinctRoles++;
+        }
+
+        double avg = s / n;
+        double var = Math.max(0, sq / n - avg * avg);
+        double avgScore = sc / n;
+        double scoreVar = Math.max(0, scq / n - avgScore * avgScore);
+
+        members += n;
+        skillSum += s;
+        skillSqSum += sq;
+        scoreSum += sc;
+        scoreSqSum += scq;
+        teamAvgSum += avg;
+        teamAvgSqSum += avg * avg;
+        minTeamAvg = Math.min(minTeamAvg, avg);
+        maxTeamAvg = Math.max(maxTeamAvg, avg);
+        teamAvgHistogram[Math.max(0, Math.min(10, (int) avg))]++;
+
+        int thinkerMax = Math.min(rules.maxOf("Thinker"), teamSize);
+        boolean roleCoverage = teamSize < rules.getRolesFromTeamSize() || distinctRoles >= rules.getMinRoles();
+        if (roleCoverage) teamsWithRoleCoverage++;
+        if (maxGame >= rules.getMaxPerGame()) teamsAtGameLimit++;
+        if (thinkers == thinkerMax) teamsAtThinkerLimit++;
+        if (!rules.accepts(list, teamSize)) teamsBreakingRules++;
+
+        if ((teams + 1) * COLS > rows.length) rows = Arrays.copyOf(rows, rows.length * 2);
+        int o = teams * COLS;
+        rows[o] = team.getTeamNumber();
+        rows[o + 1] = n;
+        rows[o + 2] = avg;
+        rows[o + 3] = var;
+        rows[o + 4] = avgScore;
+        rows[o + 5] = scoreVar;
+        rows[o + 6] = distinctRoles;
+        rows[o + 7] = maxGame;
+        rows[o + 8] = leaders;
+        rows[o + 9] = thinkers;
+        rows[o + 10] = leaders >= rules.minOf("Leader") && leaders <= rules.maxOf("Leader") ? 1 : 0;
+        rows[o + 11] = thinkerMax - thinkers;
+        teams++;
+    }
+
+    private int slot(Map<String, Integer> slots, String value, boolean game) {
+        Integer idx = slots.get(value);
+        if (idx == null) {
+            idx = slots.size();
+            slots.put(value, idx);
+            if (game && idx >= gameCounts.length) gameCounts = Arrays.copyOf(gameCounts, idx * 2);
+            if (!game && idx >= roleCounts.length) roleCounts = Arrays.copyOf(roleCounts, idx * 2);
+        }
+        return idx;
+    }
+
+    public int getTeamCount() {
+        return teams;
+    }
+
+    public double getSkillRange() {
+        return teams == 0 ? 0 : maxTeamAvg - minTeamAvg;
+    }
+
+    public double getTeamAverageVariance() {
+        if (teams == 0) return 0;
+        double mean = teamAvgSum / teams;
+        return Math.max(0, teamAvgSqSum / teams - mean * mean);
+    }
+
+    /** Writes the global figures plus per-team rows as JSON for a .json path, otherwise per-team CSV. */
+    public void write(String filePath) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePath), StandardCharsets.UTF_8))) {
+            if (filePath.endsWith(".json")) {
+                writeJson(w);
+            } else {
+                writeCsv(w);
+            }
+        }
+        logger.info("Quality report for " + teams + " teams written to " + filePath);
+    }
+
+    private void writeCsv(Writer w) throws IOException {
+        w.write(String.join(",", TEAM_COLUMNS));
+        w.write('\n');
+        StringBuilder sb = new StringBuilder(128);
+        for (int t = 0; t < teams; t++) {
+            sb.setLength(0);
+            appendRow(sb, t);
+            w.write(sb.append('\n').toString());
+        }
+    }
+
+    private void writeJson(Writer w) throws IOException {
+        double meanSkill = members == 0 ? 0 : skillSum / members;
+        double meanScore = members == 0 ? 0 : scoreSum / members;
+        StringBuilder sb = new StringBuilder(256 + teams * 160);
+
+        sb.append("{\n  \"team_size\": ").append(teamSize)
+          .append(",\n  \"teams\": ").append(teams)
+          .append(",\n  \"members\": ").append(members)
+          .append(",\n  \"skill_mean\": ").append(fmt(meanSkill))
+          .append(",\n  \"skill_variance\": ").append(fmt(members == 0 ? 0 : Math.max(0, skillSqSum / members - meanSkill * meanSkill)))
+          .append(",\n  \"score_mean\": ").append(fmt(meanScore))
+          .append(",\n  \"score_variance\": ").append(fmt(members == 0 ? 0 : Math.max(0, scoreSqSum / members - meanScore * meanScore)))
+          .append(",\n  \"team_avg_min\": ").append(fmt(teams == 0 ? 0 : minTeamAvg))
+          .append(",\n  \"team_avg_max\": ").append(fmt(teams == 0 ? 0 : maxTeamAvg))
+          .append(",\n  \"team_avg_range\": ").append(fmt(getSkillRange()))
+          .append(",\n  \"team_avg_variance\": ").append(fmt(getTeamAverageVariance()))
+          .append(",\n  \"skill_histogram\": ").append(Arrays.toString(Arrays.copyOfRange(skillHistogram, 1, 11)))
+          .append(",\n  \"team_avg_histogram\": ").append(Arrays.toString(teamAvgHistogram))
+          .append(",\n  \"teams_with_role_coverage\": ").append(teamsWithRoleCoverage)
+          .append(",\n  \"teams_at_game_limit\": ").append(teamsAtGameLimit)
+          .append(",\n  \"teams_at_thinker_limit\": ").append(teamsAtThinkerLimit)
+          .append(",\n  \"teams_breaking_rules\": ").append(teamsBreakingRules)
+          .append(",\n  \"per_team\": [");
+
+        for (int t = 0; t < teams; t++) {
+            sb.append(t == 0 ? "\n    {" : ",\n    {");
+            int o = t * COLS;
+            for (int c = 0; c < COLS; c++) {
+                if (c > 0) sb.append(", ");
+                sb.append('"').append(TEAM_COLUMNS[c]).append("\": ");
+                appendValue(sb, rows[o + c], c);
+            }
+            sb.append('}');
+        }
+        sb.append("\n  ]\n}\n");
+        w.write(sb.toString());
+    }
+
+    private void appendRow(StringBuilder sb, int t) {
+        int o = t * COLS;
+        for (int c = 0; c < COLS; c++) {
+            if (c > 0) sb.append(',');
+            appendValue(sb, rows[o + c], c);
+        }
+    }
+
+    // Averages and variances are fractional, every other column is a count
+    private static void appendValue(StringBuilder sb, double v, int column) {
+        if (column >= 2 && column <= 5) {
+            sb.append(fmt(v));
+        } else {
+            sb.append((long) v);
+        }
+    }
+
+    private static String fmt(double v) {
+        return String.format(Locale.ROOT, "%.4f", v);
+    }
+}
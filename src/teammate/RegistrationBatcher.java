@@ -0,0 +1,196 @@
+package teammate;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Collects survey submissions from many threads and writes them with a single
+ * writer thread. Everything queued while the previous write was running is
+ * assigned IDs and appended to the CSV in one group commit. IDs and duplicate
+ * emails are resolved by ParticipantIndex.append under the file lock, so no commit
+ * parses the CSV and writers in other processes cannot hand out the same ID.
+ *
+ * The intake queue is lock-free: a ConcurrentLinkedQueue bounded by a CAS-updated
+ * counter of pending submissions. Submitters never take a lock; when the queue is
+ * full they park briefly and retry until their timeout (back-pressure), and the
+ * writer parks when idle and is unparked by the next submission.
+ *
+ * Create one with {@link #start}, which starts the writer thread once the batcher is built.
+ */
+public class RegistrationBatcher implements AutoCloseable {
+
+    private static final Logger logger = AppLogger.getLogger(RegistrationBatcher.class);
+
+    private static final int MAX_BATCH = 512;
+
+    private final Queue<Submission> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int capacity;
+    private final ParticipantIndex index;
+    private final Consumer<List<Participant>> onCommit;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /** Completes a submission whose email is already registered. */
+    public static class DuplicateEmailException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        public DuplicateEmailException(String email) {
+            super("Email already registered: " + email);
+        }
+    }
+
+    private static class Submission {
+        final String name, email, game, role;
+        final int skill, rawTotal;
+        final CompletableFuture<Participant> result = new CompletableFuture<>();
+
+        Submission(String name, String email, String game, int skill, String role, int rawTotal) {
+            this.name = name;
+            this.email = email;
+            this.game = game;
+            this.skill = skill;
+            this.role = role;
+            this.rawTotal = rawTotal;
+        }
+    }
+
+    private RegistrationBatcher(ParticipantIndex index, int capacity, Consumer<List<Participant>> onCommit) {
+        this.index = index;
+        this.onCommit = onCommit;
+        this.capacity = capacity;
+
+        this.writer = new Thread(this::writeLoop, "registration-writer");
+        this.writer.setDaemon(true);
+    }
+
+    public static RegistrationBatcher start(ParticipantIndex index, int capacity, Consumer<List<Participant>> onCommit) {
+        RegistrationBatcher batcher = new RegistrationBatcher(index, capacity, onCommit);
+        batcher.writer.start();
+        return batcher;
+    }
+
+    // Waits for at most the given timeout when the queue is full (back-pressure)
+    public CompletableFuture<Participant> submit(String name, String email, String game,
+                                                 int skill, String role, int rawTotal,
+                                                 long timeout, TimeUnit unit) throws InterruptedException {
+        Submission s = new Submission(name, email, game, skill, role, rawTotal);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (true) {
+            if (!running) {
+                s.result.completeExceptionally(new RejectedExecutionException("Registration intake is closed"));
+                return s.result;
+            }
+            int n = pending.get();
+            if (n < capacity) {
+                if (pending.compareAndSet(n, n + 1)) break;
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                s.result.completeExceptionally(new RejectedExecutionException("Registration queue is full"));
+                return s.result;
+            }
+            LockSupport.parkNanos(Math.min(remaining, 500_000L));
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+
+        queue.offer(s);
+        LockSupport.unpark(writer);
+        // The writer only stops after seeing running == false and then an empty queue. If we
+        // still see running here, our offer came first and will be drained. Otherwise take the
+        // submission back, unless the writer or close() already took it and will complete it.
+        if (!running && queue.remove(s)) {
+            pending.decrementAndGet();
+            s.result.completeExceptionally(new RejectedExecutionException("Registration intake is closed"));
+        }
+        return s.result;
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    private void writeLoop() {
+        List<Submission> batch = new ArrayList<>(MAX_BATCH);
+
+        // After running is cleared the queue is drained once more before the loop ends
+        while (running || !queue.isEmpty()) {
+            Submission next;
+            while (batch.size() < MAX_BATCH && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(200));
+                continue;
+            }
+            try {
+                commit(batch);
+            } catch (RuntimeException e) {
+                logger.severe("Group commit failed: " + e.getMessage());
+                for (Submission s : batch) s.result.completeExceptionally(e);
+            } finally {
+                pending.addAndGet(-batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Submission> batch) {
+        List<Participant> drafts = new ArrayList<>(batch.size());
+        for (Submission s : batch) {
+            // The index assigns the real ID while it holds the file lock
+            drafts.add(new Participant(null, s.name, s.email, s.game, s.skill, s.role, s.rawTotal));
+        }
+
+        List<Participant> stored;
+        try {
+            stored = index.append(drafts);
+        } catch (IOException e) {
+            logger.severe("Group commit failed: " + e.getMessage());
+            for (Submission s : batch) s.result.completeExceptionally(e);
+            return;
+        }
+
+        List<Participant> created = new ArrayList<>(batch.size());
+        for (Participant p : stored) {
+            if (p != null) created.add(p);
+        }
+        if (!created.isEmpty()) {
+            logger.info("Group commit of " + created.size() + " registrations.");
+            onCommit.accept(created);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Submission s = batch.get(i);
+            if (stored.get(i) == null) {
+                s.result.completeExceptionally(new DuplicateEmailException(s.email));
+            } else {
+                s.result.complete(stored.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Only reached if the writer is stuck past the timeout; do not leave callers waiting
+        Submission left;
+        while ((left = queue.poll()) != null) {
+            pending.decrementAndGet();
+            left.result.completeExceptionally(new RejectedExecutionException("Registration intake is closed"));
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package teammate;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Append-only history of every formation run, kept in the formation_history directory.
+ *
+ * runs.log holds one binary record per run (parameters, timing and the full assignment as
+ * team number + member IDs). runs.idx is a second append-only file with one small entry per
+ * run: its log offset, the summary figures and the (participant, team) postings. Opening the
+ * store reads only runs.idx, so "which teams was P042 on" and "best skill range for this pool"
+ * are answered from memory, and teammates are fetched by seeking straight to one log record.
+ * The index is written after the log, so it decides which runs exist. A torn index entry or a
+ * log record the index never got (crash mid-append) is ignored, and is cut off before the next
+ * run is recorded.
+ *
+ * pairs.bin accumulates every pair of participants that shared a team, for formations that
+ * avoid repeat pairings (see PairHistory). It is append-only as well and only read on demand.
+ */
+public class RunStore {
+
+    private static final Logger logger = AppLogger.getLogger(RunStore.class);
+
+    private static final int LOG_MAGIC = 0x544D524C; // "TMRL"
+    private static final int IDX_MAGIC = 0x544D5249; // "TMRI"
+    private static final RunStore DEFAULT = new RunStore(new File("formation_history"));
+
+    /** Summary of one recorded run. */
+    public static class Run {
+        private final int number;
+        private final long offset;
+        private final long timestamp;
+        private final String fingerprint;
+        private final int teamSize;
+        private final Long seed;
+        private final String engine;
+        private final long formMillis;
+        private final int teamCount;
+        private final double skillRange;
+
+        Run(int number, long offset, long timestamp, String fingerprint, int teamSize, Long seed,
+            String engine, long formMillis, int teamCount, double skillRange) {
+            this.number = number;
+            this.offset = offset;
+            this.timestamp = timestamp;
+            this.fingerprint = fingerprint;
+            this.teamSize = teamSize;
+            this.seed = seed;
+            this.engine = engine;
+            this.formMillis = formMillis;
+            this.teamCount = teamCount;
+            this.skillRange = skillRange;
+        }
+
+        public int getNumber() { return number; }
+        public long getTimestamp() { return timestamp; }
+        public String getFingerprint() { return fingerprint; }
+        public int getTeamSize() { return teamSize; }
+        public Long getSeed() { return seed; }
+        public String getEngine() { return engine; }
+        public long getFormMillis() { return formMillis; }
+        public int getTeamCount() { return teamCount; }
+        public double getSkillRange() { return skillRange; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "run %d  %tF %<tT  size=%d seed=%s engine=%s teams=%d range=%.2f form=%dms",
+                    number, new Date(timestamp), teamSize, seed == null ? "-" : seed, engine, teamCount,
+                    skillRange, formMillis);
+        }
+    }
+
+    private final File logFile;
+    private final File indexFile;
+    private final File pairsFile;
+    private PairHistory pairs;
+    private final List<Run> runs = new ArrayList<>();
+    // Participant ID -> packed (run number << 32 | team number) postings, in run order
+    private final Map<String, long[]> postings = new HashMap<>();
+    private final Map<String, Integer> postingCounts = new HashMap<>();
+    private boolean loaded = false;
+    private long indexEnd = 0; // end of the last complete index entry
+    private boolean indexRead = false; // runs.idx existed and was readable, so it can vouch for runs.log
+
+    public RunStore(File dir) {
+        this.logFile = new File(dir, "runs.log");
+        this.indexFile = new File(dir, "runs.idx");
+        this.pairsFile = new File(dir, "pairs.bin");
+    }
+
+    public static RunStore getDefault() {
+        return DEFAULT;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!indexFile.exists()) return;
+
+        long[] position = new long[1];
+        try (DataInputStream in = new DataInputStream(new CountingInputStream(new FileInputStream(indexFile), position))) {
+            if (in.readInt() != IDX_MAGIC) {
+                logger.warning("Ignoring unrecognised run index " + indexFile);
+                return;
+            }
+            indexEnd = position[0];
+            while (true) {
+                Run run;
+                List<String> ids = new ArrayList<>();
+                List<Integer> teamNumbers = new ArrayList<>();
+                try {
+                    run = readIndexEntry(in, ids, teamNumbers);
+                } catch (EOFException eof) {
+                    break;
+                }
+                add(run, ids, teamNumbers);
+                indexEnd = position[0];
+            }
+            indexRead = true;
+            logger.info("Run history loaded: " + runs.size() + " runs, " + postings.size() + " participants.");
+        } catch (IOException e) {
+            logger.warning("Run index unreadable after " + runs.size() + " runs: " + e.getMessage());
+        }
+    }
+
+    private static Run readIndexEntry(DataInputStream in, List<String> ids, List<Integer> teamNumbers) throws IOException {
+        int number = in.readInt();
+        long offset = in.readLong();
+        long timestamp = in.readLong();
+        String fingerprint = in.readUTF();
+        int teamSize = in.readInt();
+        Long seed = in.readBoolean() ? in.readLong() : null;
+        String engine = in.readUTF();
+        long formMillis = in.readLong();
+        int teamCount = in.readInt();
+        double skillRange = in.readDouble();
+        int memberCount = in.readInt();
+        for (int i = 0; i < memberCount; i++) {
+            ids.add(in.readUTF());
+            teamNumbers.add(in.readInt());
+        }
+        return new Run(number, offset, timestamp, fingerprint, teamSize, seed, engine, formMillis, teamCount, skillRange);
+    }
+
+    private void add(Run run, List<String> ids, List<Integer> teamNumbers) {
+        runs.add(run);
+        long runBits = (long) run.number << 32;
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            long[] list = postings.get(id);
+            int count = postingCounts.getOrDefault(id, 0);
+            if (list == null) {
+                list = new long[4];
+            } else if (count == list.length) {
+                list = Arrays.copyOf(list, count * 2);
+            }
+            list[count] = runBits | (teamNumbers.get(i) & 0xFFFFFFFFL);
+            postings.put(id, list);
+            postingCounts.put(id, count + 1);
+        }
+    }
+
+    /** Appends one run to the log and the index; returns its run number, or -1 if it could not be written. */
+    public synchronized int record(List<Participant> pool, int teamSize, Long seed, String engine,
+                                   long formMillis, List<Team> teams) {
+        ensureLoaded();
+        File dir = logFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            logger.warning("Could not create history directory " + dir);
+            return -1;
+        }
+
+        int number = runs.isEmpty() ? 1 : runs.get(runs.size() - 1).number + 1;
+        long timestamp = System.currentTimeMillis();
+        String fingerprint = FormationCache.fingerprint(pool);
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (Team t : teams) {
+            min = Math.min(min, t.getAverageSkill());
+            max = Math.max(max, t.getAverageSkill());
+        }
+        double range = teams.isEmpty() ? 0 : max - min;
+
+        List<String> ids = new ArrayList<>();
+        List<Integer> teamNumbers = new ArrayList<>();
+        truncatePartialEntries();
+        // History recorded before pairs.bin existed is folded in once, before this run is added
+        if (pairs == null && !pairsFile.exists() && !runs.isEmpty()) {
+            getPairHistory();
+        }
+        boolean newLog = !logFile.exists() || logFile.length() == 0;
+        long offset = newLog ? 4 : logFile.length();
+        try {
+            // Log record: header then every team with its member IDs
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256 + teams.size() * teamSize * 8);
+            DataOutputStream out = new DataOutputStream(record);
+            if (newLog) out.writeInt(LOG_MAGIC);
+            out.writeInt(number);
+            out.writeLong(timestamp);
+            out.writeInt(teams.size());
+            for (Team t : teams) {
+                out.writeInt(t.getTeamNumber());
+                out.writeShort(t.getMembers().size());
+                for (Participant p : t.getMembers()) {
+                    out.writeUTF(p.getId());
+                    ids.add(p.getId());
+                    teamNumbers.add(t.getTeamNumber());
+                }
+            }
+            try (FileOutputStream log = new FileOutputStream(logFile, true)) {
+                record.writeTo(log);
+            }
+
+            ByteArrayOutputStream entry = new ByteArrayOutputStream(128 + ids.size() * 10);
+            out = new DataOutputStream(entry);
+            if (!indexFile.exists() || indexFile.length() == 0) out.writeInt(IDX_MAGIC);
+            out.writeInt(number);
+            out.writeLong(offset);
+            out.writeLong(timestamp);
+            out.writeUTF(fingerprint);
+            out.writeInt(teamSize);
+            out.writeBoolean(seed != null);
+            if (seed != null) out.writeLong(seed);
+            out.writeUTF(engine);
+            out.writeLong(formMillis);
+            out.writeInt(teams.size());
+            out.writeDouble(range);
+            out.writeInt(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                out.writeUTF(ids.get(i));
+                out.writeInt(teamNumbers.get(i));
+            }
+            try (FileOutputStream idx = new FileOutputStream(indexFile, true)) {
+                entry.writeTo(idx);
+            }
+            indexEnd = indexFile.length();
+            indexRead = true;
+
+            PairHistory target = pairs != null ? pairs : new PairHistory();
+            try (DataOutputStream pairOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pairsFile, true)))) {
+                for (Team t : teams) {
+                    List<String> memberIds = new ArrayList<>(t.getMembers().size());
+                    for (Participant p : t.getMembers()) memberIds.add(p.getId());
+                    target.addTeam(memberIds, pairOut);
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Could not record formation run: " + e.getMessage());
+            return -1;
+        }
+
+        add(new Run(number, offset, timestamp, fingerprint, teamSize, seed, engine, formMillis,
+                teams.size(), range), ids, teamNumbers);
+        logger.info("Recorded formation run " + number + " (" + teams.size() + " teams).");
+        return number;
+    }
+
+    // Drops what a crash left after the last complete run, so the next run is not appended after garbage
+    private void truncatePartialEntries() {
+        if (indexFile.exists() && indexFile.length() > indexEnd) {
+            try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+                logger.warning("Discarding " + (raf.length() - indexEnd) + " bytes of incomplete run index entry.");
+                raf.setLength(indexEnd);
+            } catch (IOException e) {
+                logger.warning("Could not repair run index: " + e.getMessage());
+            }
+        }
+
+        // A log record whose index entry was never written belongs to no run
+        if (!indexRead || !logFile.exists()) return;
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            long logEnd = runs.isEmpty() ? 0 : readRecord(raf, runs.get(runs.size() - 1), (team, ids) -> true);
+            if (raf.length() > logEnd) {
+                logger.warning("Discarding " + (raf.length() - logEnd) + " bytes of unindexed run log records.");
+                raf.setLength(logEnd);
+            }
+        } catch (IOException e) {
+            logger.warning("Could not repair run log: " + e.getMessage());
+        }
+    }
+
+    private interface TeamVisitor {
+        // Returns false to stop reading the record
+        boolean visit(int teamNumber, List<String> memberIds) throws IOException;
+    }
+
+    // Reads one run's log record, handing every team to the visitor; returns the record's end offset
+    private static long readRecord(RandomAccessFile raf, Run run, TeamVisitor visitor) throws IOException {
+        raf.seek(run.offset);
+        long[] position = {run.offset};
+        DataInputStream in = new DataInputStream(new CountingInputStream(new FileInputStream(raf.getFD()), position));
+        if (in.readInt() != run.number) throw new IOException("run log out of step with index at run " + run.number);
+        in.readLong();
+        int teams = in.readInt();
+        for (int t = 0; t < teams; t++) {
+            int team = in.readInt();
+            int size = in.readUnsignedShort();
+            List<String> ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) ids.add(in.readUTF());
+            if (!visitor.visit(team, ids)) break;
+        }
+        return position[0];
+    }
+
+    public synchronized List<Run> getRuns() {
+        ensureLoaded();
+        return new ArrayList<>(runs);
+    }
+
+    public synchronized Run getRun(int number) {
+        ensureLoaded();
+        // Run numbers are dense and ascending, so this is normally a direct hit
+        int i = Math.min(number - 1, runs.size() - 1);
+        while (i >= 0 && runs.get(i).number > number) i--;
+        return i >= 0 && runs.get(i).number == number ? runs.get(i) : null;
+    }
+
+    /** Every (run, team number) the participant was assigned to, oldest first. */
+    public synchronized List<long[]> teamsOf(String participantId) {
+        ensureLoaded();
+        long[] list = postings.get(participantId);
+        List<long[]> result = new ArrayList<>();
+        if (list == null) return result;
+        int count = postingCounts.get(participantId);
+        for (int i = 0; i < count; i++) {
+            result.add(new long[]{list[i] >>> 32, (int) list[i]});
+        }
+        return result;
+    }
+
+    /** Run with the smallest skill range for this pool (and team size, if positive), or null. */
+    public synchronized Run bestForPool(List<Participant> pool, int teamSize) {
+        ensureLoaded();
+        String fingerprint = FormationCache.fingerprint(pool);
+        Run best = null;
+        for (Run run : runs) {
+            if (!run.fingerprint.equals(fingerprint)) continue;
+            if (teamSize > 0 && run.teamSize != teamSize) continue;
+            if (best == null || run.skillRange < best.skillRange) best = run;
+        }
+        return best;
+    }
+
+    /** Pairs who have shared a team in any recorded run; loaded on first use. */
+    public synchronized PairHistory getPairHistory() {
+        if (pairs != null) return pairs;
+        ensureLoaded();
+        try {
+            if (pairsFile.exists()) {
+                pairs = PairHistory.load(pairsFile);
+            } else {
+                pairs = rebuildPairs();
+            }
+            logger.info("Pair history loaded: " + pairs.size() + " pairs.");
+        } catch (IOException e) {
+            logger.warning("Pair history unreadable, starting empty: " + e.getMessage());
+            pairs = new PairHistory();
+        }
+        return pairs;
+    }
+
+    // One pass over the indexed log records, only needed when pairs.bin is missing
+    private PairHistory rebuildPairs() throws IOException {
+        PairHistory history = new PairHistory();
+        if (!logFile.exists() || runs.isEmpty()) return history;
+
+        File dir = logFile.getParentFile();
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "r");
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pairsFile)))) {
+            if (raf.readInt() != LOG_MAGIC) throw new IOException("unrecognised run log in " + dir);
+            // Following the index skips records it never got, e.g. from a crash between the two writes
+            for (Run run : runs) {
+                readRecord(raf, run, (team, ids) -> {
+                    history.addTeam(ids, out);
+                    return true;
+                });
+            }
+        }
+        logger.info("Rebuilt pair history from " + runs.size() + " recorded runs.");
+        return history;
+    }
+
+    /** Member IDs of one team in a recorded run, read from that run's log record only. */
+    public synchronized List<String> membersOf(int runNumber, int teamNumber) throws IOException {
+        Run run = getRun(runNumber);
+        if (run == null) return List.of();
+
+        List<List<String>> found = new ArrayList<>(1);
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "r")) {
+            readRecord(raf, run, (team, ids) -> {
+                if (team != teamNumber) return true;
+                found.add(ids);
+                return false;
+            });
+        }
+        return found.isEmpty() ? List.of() : found.get(0);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final long[] position;
+
+        CountingInputStream(InputStream in, long[] position) {
+            super(new BufferedInputStream(in, 1 << 16));
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) position[0]++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) position[0] += n;
+            return n;
+        }
+    }
+}
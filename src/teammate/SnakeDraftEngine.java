@@ -0,0 +1,188 @@
+package teammate;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * One-pass formation engine for large events ("snake" engine in batch mode).
+ *
+ * Participants are split into Leader / Thinker / rest buckets, each sorted by skill
+ * (highest first), and dealt to the teams in serpentine order: 1..n, then n..1, and so on,
+ * continuing the direction across buckets. Every pick takes the strongest remaining
+ * candidate that TeamRules still allows for that team, looking at most WINDOW candidates
+ * ahead, so the whole run is a sort plus a linear deal. Teams that cannot be completed
+ * within the rules are dissolved back into the unassigned list.
+ *
+ * The result is already close to balanced; TeamBuilder.refine can polish it further.
+ */
+public class SnakeDraftEngine {
+
+    private static final Logger logger = AppLogger.getLogger(SnakeDraftEngine.class);
+
+    // How far past the strongest remaining candidate a pick may look for one that fits
+    private static final int WINDOW = 64;
+
+    private final List<Participant> pool;
+    private final int teamSize;
+    private TeamRules rules = TeamRules.getDefault();
+    private PairHistory pairHistory = null;
+    private Random random = null;
+    private final List<Participant> unassigned = new ArrayList<>();
+    private FeasibilityCheck.Result feasibility = null;
+
+    /** A skill-sorted bucket with a cursor past its already-taken prefix. */
+    private static class Bucket {
+        final Participant[] members;
+        final boolean[] taken;
+        int head;
+
+        Bucket(List<Participant> list) {
+            members = list.toArray(new Participant[0]);
+            taken = new boolean[members.length];
+        }
+    }
+
+    public SnakeDraftEngine(List<Participant> participants, int teamSize) {
+        this.pool = participants;
+        this.teamSize = teamSize;
+    }
+
+    public void setRules(TeamRules rules) {
+        this.rules = rules;
+    }
+
+    public void setPairHistory(PairHistory pairHistory) {
+        this.pairHistory = pairHistory;
+    }
+
+    // Without a seed equal-skill participants keep file order; a seed shuffles them first
+    public void setSeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public List<Team> formTeams() {
+        List<Participant> all = new ArrayList<>(pool);
+        if (random != null) Collections.shuffle(all, random);
+
+        List<Participant> leaders = new ArrayList<>();
+        List<Participant> thinkers = new ArrayList<>();
+        List<Participant> rest = new ArrayList<>();
+        for (Participant p : all) {
+            String type = p.getPersonalityType();
+            if ("Leader".equalsIgnoreCase(type)) leaders.add(p);
+            else if ("Thinker".equalsIgnoreCase(type)) thinkers.add(p);
+            else rest.add(p);
+        }
+        Comparator<Participant> strongestFirst = Comparator.comparingInt(Participant::getSkillLevel).reversed();
+        leaders.sort(strongestFirst);
+        thinkers.sort(strongestFirst);
+
+        int leadersPerTeam = Math.min(Math.max(1, rules.minOf("Leader")), rules.maxOf("Leader"));
+        int thinkersPerTeam = Math.max(rules.minOf("Thinker"),
+                Math.min(teamSize >= 5 ? 2 : 1, rules.maxOf("Thinker")));
+
+        feasibility = FeasibilityCheck.analyze(all, teamSize, rules);
+        int teamCount = feasibility.getUpperBound();
+        if (teamCount <= 0) {
+            unassigned.addAll(pool);
+            logger.warning("Snake draft: no team possible, limited by " + feasibility.getBindingConstraint());
+            return new ArrayList<>();
+        }
+
+        List<List<Participant>> teams = new ArrayList<>(teamCount);
+        for (int i = 0; i < teamCount; i++) teams.add(new ArrayList<>(teamSize));
+
+        int[] round = {0};
+        Bucket leaderBucket = new Bucket(leaders);
+        Bucket thinkerBucket = new Bucket(thinkers);
+        deal(teams, leaderBucket, leadersPerTeam, round);
+        deal(teams, thinkerBucket, thinkersPerTeam, round);
+
+        // Remaining slots: Balanced first, then spare Thinkers/Leaders where the limits allow.
+        // Buckets stay separate so members a team may not take never crowd the look-ahead window.
+        rest.sort(strongestFirst);
+        Bucket restBucket = new Bucket(rest);
+        deal(teams, restBucket, teamSize, round);
+        deal(teams, thinkerBucket, teamSize, round);
+        deal(teams, leaderBucket, teamSize, round);
+
+        List<Team> result = new ArrayList<>(teamCount);
+        for (List<Participant> members : teams) {
+            if (members.size() == teamSize && rules.accepts(members, teamSize)) {
+                Team team = new Team(result.size() + 1);
+                for (Participant p : members) team.addMember(p);
+                result.add(team);
+            } else {
+                unassigned.addAll(members);
+            }
+        }
+        collectUntaken(leaderBucket, unassigned);
+        collectUntaken(thinkerBucket, unassigned);
+        collectUntaken(restBucket, unassigned);
+
+        logger.info("Snake draft formed " + result.size() + " of " + teamCount + " teams, "
+                + unassigned.size() + " unassigned.");
+        return result;
+    }
+
+    // Serpentine rounds until every team got `perTeam` more members or the bucket has nothing that fits
+    private void deal(List<List<Participant>> teams, Bucket bucket, int perTeam, int[] round) {
+        int[] target = new int[teams.size()];
+        for (int k = 0; k < teams.size(); k++) target[k] = Math.min(teamSize, teams.get(k).size() + perTeam);
+
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            boolean forward = round[0]++ % 2 == 0;
+            for (int j = 0; j < teams.size(); j++) {
+                int k = forward ? j : teams.size() - 1 - j;
+                List<Participant> team = teams.get(k);
+                if (team.size() >= target[k]) continue;
+                Participant p = pick(bucket, team);
+                if (p != null) {
+                    team.add(p);
+                    progress = true;
+                }
+            }
+        }
+    }
+
+    private Participant pick(Bucket bucket, List<Participant> team) {
+        while (bucket.head < bucket.members.length && bucket.taken[bucket.head]) bucket.head++;
+
+        int fallback = -1;
+        int seen = 0;
+        for (int i = bucket.head; i < bucket.members.length && seen < WINDOW; i++) {
+            if (bucket.taken[i]) continue;
+            seen++;
+            Participant candidate = bucket.members[i];
+            if (!rules.allows(candidate, team, teamSize)) continue;
+            if (pairHistory != null && pairHistory.sharedWithAny(candidate, team)) {
+                if (fallback < 0) fallback = i;
+                continue;
+            }
+            bucket.taken[i] = true;
+            return candidate;
+        }
+        // Repeat pairings are a penalty, not a rule
+        if (fallback >= 0) {
+            bucket.taken[fallback] = true;
+            return bucket.members[fallback];
+        }
+        return null;
+    }
+
+    private static void collectUntaken(Bucket bucket, List<Participant> into) {
+        for (int i = bucket.head; i < bucket.members.length; i++) {
+            if (!bucket.taken[i]) into.add(bucket.members[i]);
+        }
+    }
+
+    public FeasibilityCheck.Result getFeasibility() {
+        return feasibility;
+    }
+
+    public List<Participant> getUnassignedParticipants() {
+        return new ArrayList<>(unassigned);
+    }
+}
@@ -0,0 +1,39 @@
+package teammate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared dictionary for the low-cardinality participant fields (game, role, personality
+ * type, email domain). Every row holding "FIFA" points at the same String instance, which is
+ * also the JVM-interned literal, so comparisons against constants like "Leader" hit the
+ * identity fast path of equals/equalsIgnoreCase.
+ *
+ * High-cardinality text (the local part of an email) is kept as raw UTF-8 bytes instead.
+ */
+public final class StringDictionary {
+
+    // Guard against unbounded growth if a file has free-text in a categorical column
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final Map<String, String> CANONICAL = new ConcurrentHashMap<>();
+
+    private StringDictionary() { }
+
+    public static String canonical(String value) {
+        if (value == null) return null;
+        String existing = CANONICAL.get(value);
+        if (existing != null) return existing;
+        if (CANONICAL.size() >= MAX_ENTRIES) return value;
+        return CANONICAL.computeIfAbsent(value, String::intern);
+    }
+
+    public static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static String decode(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
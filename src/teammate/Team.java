@@ -55,10 +55,7 @@ public class Team {
     }
 
     public double getAverageSkill() {
-        if (members.isEmpty()) return 0.0;
-        return members.stream()
-                .mapToInt(Participant::getSkillLevel)
-                .average().orElse(0.0);
+        return TeamStats.average(this);
     }
 
     @Override
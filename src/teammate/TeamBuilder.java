@@ -1,8 +1,10 @@
 
 package teammate;
 
+import java.io.PrintStream;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -18,6 +20,17 @@ public class TeamBuilder {
     private final Object participantLock = new Object();
     private final Object teamLock = new Object();
 
+    private Random random = new Random();
+    private Long seed = null;
+    private int turn = 1;
+    private boolean ordered = false;
+    private int maxThreads = Runtime.getRuntime().availableProcessors();
+    private PrintStream out = System.out;
+    private PairHistory pairHistory = null;
+    private TeamRules rules = TeamRules.getDefault();
+    private FeasibilityCheck.Result feasibility = null;
+    private Executor sharedExecutor = null;
+
 
     public TeamBuilder(List<Participant> allParticipants, int teamSize) {
         // Create thread-safe synchronized copy
@@ -26,25 +39,91 @@ public class TeamBuilder {
         this.teamSize = teamSize;
     }
 
+    // Fixed seed makes the candidate shuffles repeatable (used by batch runs): each team draws
+    // from its own Random derived from the seed and teams pick from the pool in team order
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = Math.max(1, maxThreads);
+    }
+
+    // Run the team jobs on a pool owned by someone else (see EventScheduler) instead of a private one
+    public void setExecutor(Executor executor) {
+        this.sharedExecutor = executor;
+    }
+
+    // Console progress output; batch mode passes a silent stream
+    public void setOutput(PrintStream out) {
+        this.out = out;
+    }
+
+    // Composition rules for this run; defaults to team_rules.properties or the built-in rules
+    public void setRules(TeamRules rules) {
+        this.rules = rules;
+    }
+
+    // Prefer candidates who have not shared a team with anyone already picked
+    public void setPairHistory(PairHistory pairHistory) {
+        this.pairHistory = pairHistory;
+    }
+
 
     public List<Team> buildTeams() {
+        formTeams();
+
+        // Optimization phase
+        if (!formedTeams.isEmpty()) {
+            out.println("\n Starting optimization phase...");
+            optimizeBalance();
+        }
+        // Print final statistics
+        if (!formedTeams.isEmpty()) {
+            printFinalStatistics();
+        }
+
+        return new ArrayList<>(formedTeams);
+    }
+
+
+    // Forms teams concurrently without the optimization phase
+    public List<Team> formTeams() {
+        runFormation(null, 0);
+        return new ArrayList<>(formedTeams);
+    }
+
+
+    /**
+     * Pipeline mode: teams are handed to the sink as soon as they are final instead of
+     * being kept until the end. Completed teams collect in a window of the given size,
+     * which is balanced on its own and then flushed, so only the open window is held in
+     * memory. Returns the number of teams streamed.
+     */
+    public int streamTeams(Consumer<Team> sink, int window) {
+        return runFormation(sink, Math.max(2, window));
+    }
+
+
+    private int runFormation(Consumer<Team> sink, int window) {
         if (participants == null || participants.isEmpty()) {
-            System.out.println("\n  No participants available to form teams!");
+            out.println("\n  No participants available to form teams!");
             logger.warning("No participants available to form teams.");
-            return new ArrayList<>();
+            return 0;
         }
 
         if (teamSize < 3 || teamSize > 10) {
-            System.out.println("\n  Team size must be between 3 and 10!");
+            out.println("\n  Team size must be between 3 and 10!");
             logger.warning("Team size must be between 3 and 10.");
-            return new ArrayList<>();
+            return 0;
         }
 
-        System.out.println("\n" + "-".repeat(60));
-        System.out.println("STARTING CONCURRENT TEAM FORMATION");
-        System.out.println("-".repeat(60));
-        System.out.println("Total participants: " + participants.size());
-        System.out.println("Team size: " + teamSize);
+        out.println("\n" + "-".repeat(60));
+        out.println("STARTING CONCURRENT TEAM FORMATION");
+        out.println("-".repeat(60));
+        out.println("Total participants: " + participants.size());
+        out.println("Team size: " + teamSize);
         logger.info("Starting concurrent team formation...");
         logger.info("Total participants: " + participants.size());
         logger.info("Team size: " + teamSize);
@@ -52,10 +131,10 @@ public class TeamBuilder {
         // Calculate teams and validate resources
         int totalTeamsNeeded = participants.size() / teamSize;
         if (totalTeamsNeeded == 0) {
-            System.out.println("\n⚠  Not enough participants to form even one team!");
-            System.out.println("   Need at least " + teamSize + " participants.");
+            out.println("\n⚠  Not enough participants to form even one team!");
+            out.println("   Need at least " + teamSize + " participants.");
             logger.warning("Not enough participants to form even one team.");
-            return new ArrayList<>();
+            return 0;
         }
 
         // Check personality distribution
@@ -63,57 +142,73 @@ public class TeamBuilder {
         long leaders = personalityCount.getOrDefault("Leader", 0L);
         long thinkers = personalityCount.getOrDefault("Thinker", 0L);
 
-        System.out.println("\nPersonality Distribution:");
-        System.out.println("  Leaders:  " + leaders);
-        System.out.println("  Thinkers: " + thinkers);
-        System.out.println("  Balanced: " + personalityCount.getOrDefault("Balanced", 0L));
+        out.println("\nPersonality Distribution:");
+        out.println("  Leaders:  " + leaders);
+        out.println("  Thinkers: " + thinkers);
+        out.println("  Balanced: " + personalityCount.getOrDefault("Balanced", 0L));
 
         logger.info("Personality Distribution -> Leaders: " + leaders + ", Thinkers: " + thinkers);
-        if (leaders < 1 || thinkers < 1) {
-            System.out.println("\n⚠  Cannot form teams: Need at least 1 Leader AND 1 Thinker per team.");
-            logger.warning("Cannot form teams: Minimum 1 Leader and 1 Thinker required.");
-            return new ArrayList<>();
+
+        // Only start jobs for teams the rules can actually allow
+        feasibility = FeasibilityCheck.analyze(participants, teamSize, rules);
+        logger.info("Feasibility: " + feasibility + " " + feasibility.getBounds());
+        if (feasibility.getUpperBound() == 0) {
+            out.println("\n⚠  Cannot form teams: not enough participants for " + feasibility.getBindingConstraint() + ".");
+            logger.warning("Cannot form teams, binding constraint: " + feasibility.getBindingConstraint());
+            return 0;
         }
 
-        // Limit teams by available leaders
-        int maxTeamsByLeaders = (int) leaders;
-        totalTeamsNeeded = Math.min(totalTeamsNeeded, maxTeamsByLeaders);
+        totalTeamsNeeded = Math.min(totalTeamsNeeded, feasibility.getUpperBound());
         logger.info("Teams to form: " + totalTeamsNeeded);
-        System.out.println("\nTeams to form: " + totalTeamsNeeded);
-        System.out.println("-".repeat(60));
+        out.println("\nTeams to form: " + totalTeamsNeeded + "  (limited by " + feasibility.getBindingConstraint() + ")");
+        out.println("-".repeat(60));
 
         // Calculate optimal thread count
-        int numOfThreads = Math.min(totalTeamsNeeded, Runtime.getRuntime().availableProcessors());
-        System.out.println("\n Using " + numOfThreads + " threads for parallel processing\n");
+        ExecutorService executorService = null;
+        CompletionService<Team> completion;
+        if (sharedExecutor != null) {
+            out.println("\n Using the shared worker pool\n");
+            completion = new ExecutorCompletionService<>(sharedExecutor);
+        } else {
+            int numOfThreads = Math.min(totalTeamsNeeded, maxThreads);
+            out.println("\n Using " + numOfThreads + " threads for parallel processing\n");
 
-        // Create thread pool
-        ExecutorService executorService = Executors.newFixedThreadPool(numOfThreads);
-        List<Future<Team>> futures = new ArrayList<>();
+            // Create thread pool
+            executorService = Executors.newFixedThreadPool(numOfThreads);
+            completion = new ExecutorCompletionService<>(executorService);
+        }
 
 
+        turn = 1;
+        ordered = seed != null;
+        List<Future<Team>> futures = new ArrayList<>(totalTeamsNeeded);
         for (int i = 0; i < totalTeamsNeeded; i++) {
             final int teamNumber = i + 1;
-            Future<Team> future = executorService.submit(new Callable<Team>() {
+            futures.add(completion.submit(new Callable<Team>() {
                 @Override
                 public Team call() {
                     return formSingleTeam(teamNumber);
                 }
-            });
-            futures.add(future);
+            }));
         }
 
-        // Collect results from all threads
+        // Collect results in completion order
         int successCount = 0;
         int failCount = 0;
+        int streamed = 0;
 
-        for (Future<Team> future : futures) {
+        for (int i = 0; i < totalTeamsNeeded; i++) {
             try {
-                Team team = future.get(); // Wait for thread to complete
+                // Seeded runs collect in team order so windows and output do not depend on timing
+                Team team = ordered ? futures.get(i).get() : completion.take().get();
                 if (team != null && team.getMembers().size() == teamSize) {
                     synchronized (teamLock) {
                         formedTeams.add(team);
                     }
                     successCount++;
+                    if (sink != null && formedTeams.size() >= window) {
+                        streamed += flushWindow(sink);
+                    }
 //
                 } else {
                     failCount++;
@@ -124,6 +219,7 @@ public class TeamBuilder {
                 logger.severe("Error during team formation: " + e.getMessage());
                 Thread.currentThread().interrupt();
                 failCount++;
+                break;
             } catch (ExecutionException e) {
                 System.err.println("  Error during team formation: " + e.getMessage());
                 e.printStackTrace();
@@ -131,101 +227,124 @@ public class TeamBuilder {
             }
         }
 
-        // Shutdown thread pool gracefully
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-                System.out.println("  Forced shutdown of thread pool!");
+        // Later single-threaded callers (reformation) pick whenever they run
+        synchronized (participantLock) {
+            ordered = false;
+            participantLock.notifyAll();
+        }
+
+        // Shutdown thread pool gracefully; a shared pool belongs to its owner
+        if (executorService != null) {
+            executorService.shutdown();
+            try {
+                if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
+                    executorService.shutdownNow();
+                    out.println("  Forced shutdown of thread pool!");
 
 
+                }
+            } catch (InterruptedException e) {
+                executorService.shutdownNow();
+                Thread.currentThread().interrupt();
             }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
         }
 
-        System.out.println("\n" + "-".repeat(60));
-        System.out.println("TEAM FORMATION COMPLETED");
-        System.out.println("-".repeat(60));
-        System.out.println(" Successfully formed: " + successCount + " teams");
+        out.println("\n" + "-".repeat(60));
+        out.println("TEAM FORMATION COMPLETED");
+        out.println("-".repeat(60));
+        out.println(" Successfully formed: " + successCount + " teams");
         if (failCount > 0) {
-            System.out.println(" Failed: " + failCount + " teams");
+            out.println(" Failed: " + failCount + " teams");
         }
 
-        // Optimization phase
-        if (!formedTeams.isEmpty()) {
-            System.out.println("\n Starting optimization phase...");
-            optimizeBalance();
-        }
-        // Print final statistics
-        if (!formedTeams.isEmpty()) {
-            printFinalStatistics();
+        if (sink != null && !formedTeams.isEmpty()) {
+            streamed += flushWindow(sink);
         }
+        return sink == null ? formedTeams.size() : streamed;
+    }
 
-        return new ArrayList<>(formedTeams);
+
+    // Balances the open window on its own, hands its teams to the sink and forgets them
+    private int flushWindow(Consumer<Team> sink) {
+        balanceSwaps(150);
+        int count = formedTeams.size();
+        for (Team team : formedTeams) {
+            sink.accept(team);
+        }
+        formedTeams.clear();
+        return count;
     }
 
 
     private Team formSingleTeam(int teamNumber) {
         Team team = new Team(teamNumber);
         List<Participant> selectedMembers = new ArrayList<>();
+        Random random = seed == null ? this.random : new Random(seed * 1_000_003L + teamNumber);
 
         try {
             synchronized (participantLock) {
-                // Check if enough participants remain
-                if (participants.size() < teamSize) {
+                awaitTurn(teamNumber);
+                try {
+                    // Check if enough participants remain
+                    if (participants.size() < teamSize) {
 
-                    return null;
-                }
+                        return null;
+                    }
 
-                // Select exactly 1 Leader
-                Participant leader = selectByPersonality("Leader", selectedMembers);
-                if (leader == null) {
+                    // Select the Leader(s): one by default, more if the rules require it
+                    int leadersNeeded = Math.min(Math.max(1, rules.minOf("Leader")), rules.maxOf("Leader"));
+                    for (int i = 0; i < leadersNeeded; i++) {
+                        Participant leader = selectByPersonality("Leader", selectedMembers, random);
+                        if (leader == null) {
 
-                    return null;
-                }
-                selectedMembers.add(leader);
+                            return null;
+                        }
+                        selectedMembers.add(leader);
+                    }
 
-                // Select 1-2 Thinkers
-                int thinkersNeeded = (teamSize >= 5) ? 2 : 1;
-                int thinkersAdded = 0;
+                    // Select 1-2 Thinkers, kept within the configured limits
+                    int thinkersNeeded = Math.max(rules.minOf("Thinker"),
+                            Math.min((teamSize >= 5) ? 2 : 1, rules.maxOf("Thinker")));
+                    int thinkersAdded = 0;
+
+                    for (int i = 0; i < thinkersNeeded; i++) {
+                        Participant thinker = selectBestMatch(selectedMembers, "Thinker", random);
+                        if (thinker != null) {
+                            selectedMembers.add(thinker);
+                            thinkersAdded++;
+                        } else {
+                            if (thinkersAdded < rules.minOf("Thinker")) {
+
+                                return null;
+                            }
+                            break;
+                        }
+                    }
 
-                for (int i = 0; i < thinkersNeeded; i++) {
-                    Participant thinker = selectBestMatch(selectedMembers, "Thinker");
-                    if (thinker != null) {
-                        selectedMembers.add(thinker);
-                        thinkersAdded++;
-                    } else {
-                        if (thinkersAdded == 0) {
+                    //  Fill remaining slots with Balanced or any available
+                    int remainingSlots = teamSize - selectedMembers.size();
+                    for (int i = 0; i < remainingSlots; i++) {
+                        Participant balanced = selectBestMatch(selectedMembers, "Balanced", random);
+                        if (balanced == null) {
+                            balanced = selectBestMatch(selectedMembers, null, random); // Any type
+                        }
 
+                        if (balanced != null) {
+                            selectedMembers.add(balanced);
+                        } else {
                             return null;
                         }
-                        break;
-                    }
-                }
-
-                //  Fill remaining slots with Balanced or any available
-                int remainingSlots = teamSize - selectedMembers.size();
-                for (int i = 0; i < remainingSlots; i++) {
-                    Participant balanced = selectBestMatch(selectedMembers, "Balanced");
-                    if (balanced == null) {
-                        balanced = selectBestMatch(selectedMembers, null); // Any type
                     }
+                    // Validate team constraints
+                    if (!validateTeam(selectedMembers, teamNumber)) {
 
-                    if (balanced != null) {
-                        selectedMembers.add(balanced);
-                    } else {
                         return null;
                     }
+                    //  Remove selected members from available pool
+                    participants.removeAll(selectedMembers);
+                } finally {
+                    passTurn();
                 }
-                // Validate team constraints
-                if (!validateTeam(selectedMembers, teamNumber)) {
-
-                    return null;
-                }
-                //  Remove selected members from available pool
-                participants.removeAll(selectedMembers);
             }
 
             //  Add members to team (outside synchronized block for better performance)
@@ -243,7 +362,27 @@ public class TeamBuilder {
         }
     }
 
-    private Participant selectBestMatch(List<Participant> currentTeam, String preferredPersonality) {
+    // Seeded concurrent runs let teams pick in team order; caller holds participantLock
+    private void awaitTurn(int teamNumber) {
+        if (!ordered) return;
+        while (turn < teamNumber) {
+            try {
+                participantLock.wait();
+            } catch (InterruptedException e) {
+                // Give up the ordering rather than the team; the run is being cancelled anyway
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void passTurn() {
+        if (!ordered) return;
+        turn++;
+        participantLock.notifyAll();
+    }
+
+    private Participant selectBestMatch(List<Participant> currentTeam, String preferredPersonality, Random random) {
         List<Participant> candidates = new ArrayList<>(participants);
         candidates.removeAll(currentTeam);
 
@@ -258,20 +397,29 @@ public class TeamBuilder {
         }
 
         // Shuffle for randomness and fairness
-        Collections.shuffle(candidates);
+        Collections.shuffle(candidates, random);
 
         // Find first candidate that meets all requirements
         for (Participant candidate : candidates) {
-            if (meetsRequirements(candidate, currentTeam)) {
+            if (meetsRequirements(candidate, currentTeam, true)) {
                 return candidate;
             }
         }
 
+        // Repeat pairings are only a penalty: take one rather than leave the slot empty
+        if (pairHistory != null) {
+            for (Participant candidate : candidates) {
+                if (meetsRequirements(candidate, currentTeam, false)) {
+                    return candidate;
+                }
+            }
+        }
+
         return null;
     }
 
 
-    private Participant selectByPersonality(String personalityType, List<Participant> selected) {
+    private Participant selectByPersonality(String personalityType, List<Participant> selected, Random random) {
         List<Participant> candidates = participants.stream()
                 .filter(p -> p.getPersonalityType().equalsIgnoreCase(personalityType))
                 .filter(p -> !selected.contains(p))
@@ -281,33 +429,18 @@ public class TeamBuilder {
             return null;
         }
 
-        Collections.shuffle(candidates);
+        Collections.shuffle(candidates, random);
         return candidates.get(0);
     }
 
-    private boolean meetsRequirements(Participant candidate, List<Participant> currentTeam) {
+    private boolean meetsRequirements(Participant candidate, List<Participant> currentTeam, boolean checkHistory) {
 
-        long sameGameCount = currentTeam.stream()
-                .filter(p -> p.getPreferredGame().equalsIgnoreCase(candidate.getPreferredGame()))
-                .count();
-        if (sameGameCount >= 2) {
+        if (checkHistory && pairHistory != null && pairHistory.sharedWithAny(candidate, currentTeam)) {
             return false;
         }
 
-        if (teamSize >= 4) {
-            int remainingSlots = teamSize - currentTeam.size() - 1;
-            Set<String> currentRoles = currentTeam.stream()
-                    .map(Participant::getPreferredRole)
-                    .collect(Collectors.toSet());
-
-            if (remainingSlots <= 2 && currentRoles.size() < 3) {
-                if (currentRoles.contains(candidate.getPreferredRole()) && remainingSlots == 0) {
-                    return false;
-                }
-            }
-        }
-
-        return true;
+        // Game, role and personality limits, including whether the team can still be completed
+        return rules.allows(candidate, currentTeam, teamSize);
     }
 
     private boolean validateTeam(List<Participant> team, int teamNumber) {
@@ -325,72 +458,63 @@ public class TeamBuilder {
             return false;
         }
 
+        return rules.accepts(team, teamSize);
+    }
 
-        long leaders = team.stream()
-                .filter(p -> p.getPersonalityType().equalsIgnoreCase("Leader"))
-                .count();
-        if (leaders != 1) {
-
-            return false;
-        }
-
-
-        long thinkers = team.stream()
-                .filter(p -> p.getPersonalityType().equalsIgnoreCase("Thinker"))
-                .count();
-        if (thinkers < 1 || thinkers > 2) {
-
-            return false;
-        }
-
-        if (teamSize >= 4) {
-            long uniqueRoles = team.stream()
-                    .map(Participant::getPreferredRole)
-                    .distinct()
-                    .count();
-            if (uniqueRoles < 3) {
-
-                return false;
-            }
-        }
-
-
-        Map<String, Long> gameCounts = team.stream()
-                .collect(Collectors.groupingBy(Participant::getPreferredGame, Collectors.counting()));
-
-        for (Map.Entry<String, Long> entry : gameCounts.entrySet()) {
-            if (entry.getValue() > 2) {
 
-                return false;
-            }
-        }
-
-        return true;
+    public void optimizeBalance() {
+        optimizeBalance(150);
     }
 
+    /** Runs the balance optimizer over teams formed elsewhere (e.g. by SnakeDraftEngine). */
+    public List<Team> refine(List<Team> teams) {
+        formedTeams.clear();
+        formedTeams.addAll(teams);
+        optimizeBalance();
+        return getFormedTeams();
+    }
 
-    private void optimizeBalance() {
+    // Each iteration swaps at most one pair between the weakest and strongest team
+    private void optimizeBalance(int maxIterations) {
         if (formedTeams.size() < 2) {
-            System.out.println("  Optimization skipped (need at least 2 teams)");
+            out.println("  Optimization skipped (need at least 2 teams)");
             return;
         }
 
-        System.out.println("\n Optimizing teams for fair skill distribution...");
+        out.println("\n Optimizing teams for fair skill distribution...");
+        balanceSwaps(maxIterations);
+        out.println("\n Final Skill Range: " + String.format("%.2f", getSkillRange()));
+    }
+
+    private void balanceSwaps(int maxIterations) {
+        if (formedTeams.size() < 2) return;
 
         boolean improved = true;
         int iterations = 0;
-        int maxIterations = 150;
 
         while (improved && iterations < maxIterations) {
             improved = false;
             iterations++;
 
-            formedTeams.sort(Comparator.comparingDouble(this::getTeamAvgSkill));
+            // Averages once per iteration; the sort is stable, as sorting the list by them directly was
+            TeamStats stats = TeamStats.of(formedTeams);
+            Integer[] order = new Integer[stats.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble(stats::getAverage));
+            Team[] sorted = new Team[order.length];
+            for (int i = 0; i < order.length; i++) sorted[i] = formedTeams.get(order[i]);
+            for (int i = 0; i < sorted.length; i++) formedTeams.set(i, sorted[i]);
 
+            int n = sorted.length;
             Team weakest = formedTeams.get(0);
-            Team strongest = formedTeams.get(formedTeams.size() - 1);
+            Team strongest = formedTeams.get(n - 1);
+            long weakSum = stats.getSum(order[0]);
+            long strongSum = stats.getSum(order[n - 1]);
 
-            double beforeRange = getSkillRange();
+            double beforeRange = stats.getAverage(order[n - 1]) - stats.getAverage(order[0]);
+            // A swap only moves the two ends, so every other team's extremes are the inner neighbours
+            double othersMin = n > 2 ? stats.getAverage(order[1]) : Double.MAX_VALUE;
+            double othersMax = n > 2 ? stats.getAverage(order[n - 2]) : -Double.MAX_VALUE;
 
             List<Participant> weakestCandidates = weakest.getMembers().stream()
                     .filter(p -> !p.getPersonalityType().equalsIgnoreCase("Leader"))
@@ -413,7 +537,11 @@ public class TeamBuilder {
                     weakest.getMembers().add(strong);
                     strongest.getMembers().add(weak);
 
-                    double afterRange = getSkillRange();
+                    int delta = strong.getSkillLevel() - weak.getSkillLevel();
+                    double weakAvg = (double) (weakSum + delta) / weakest.getMembers().size();
+                    double strongAvg = (double) (strongSum - delta) / strongest.getMembers().size();
+                    double afterRange = Math.max(othersMax, Math.max(weakAvg, strongAvg))
+                            - Math.min(othersMin, Math.min(weakAvg, strongAvg));
 
 
                     if (afterRange < beforeRange &&
@@ -434,62 +562,17 @@ public class TeamBuilder {
                 if (swapMade) break;
             }
         }
-
-        System.out.println("\n Final Skill Range: " + String.format("%.2f", getSkillRange()));
     }
 
 
     private boolean isTeamValid(Team team) {
-        List<Participant> members = team.getMembers();
-
-        long leaderCount = members.stream()
-                .filter(m -> m.getPersonalityType().equals("Leader"))
-                .count();
-        if (leaderCount != 1) return false;
-
-        long thinkerCount = members.stream()
-                .filter(m -> m.getPersonalityType().equals("Thinker"))
-                .count();
-        if (thinkerCount < 1 || thinkerCount > 2) return false;
-
-        Map<String, Long> gameCounts = members.stream()
-                .collect(Collectors.groupingBy(Participant::getPreferredGame, Collectors.counting()));
-        for (Long count : gameCounts.values()) {
-            if (count > 2) return false;
-        }
-
-        if (teamSize >= 4) {
-            long uniqueRoles = members.stream()
-                    .map(Participant::getPreferredRole)
-                    .distinct()
-                    .count();
-            if (uniqueRoles < 3) return false;
-        }
-
-        return true;
+        return rules.accepts(team.getMembers(), teamSize);
     }
 
 
-    private double getSkillRange() {
+    public double getSkillRange() {
         if (formedTeams.isEmpty()) return 0;
-        double min = formedTeams.stream()
-                .mapToDouble(this::getTeamAvgSkill)
-                .min()
-                .orElse(0);
-        double max = formedTeams.stream()
-                .mapToDouble(this::getTeamAvgSkill)
-                .max()
-                .orElse(0);
-        return max - min;
-    }
-
-
-    private double getTeamAvgSkill(Team team) {
-        if (team.getMembers().isEmpty()) return 0.0;
-        return team.getMembers().stream()
-                .mapToInt(Participant::getSkillLevel)
-                .average()
-                .orElse(0);
+        return TeamStats.of(formedTeams).getRange();
     }
 
 
@@ -500,43 +583,151 @@ public class TeamBuilder {
 
 
     private void printFinalStatistics() {
-        System.out.println("\n" + "-".repeat(60));
-        System.out.println("FINAL TEAM STATISTICS");
-        System.out.println("-".repeat(60));
-
-        double minAvg = formedTeams.stream()
-                .mapToDouble(this::getTeamAvgSkill)
-                .min()
-                .orElse(0);
-        double maxAvg = formedTeams.stream()
-                .mapToDouble(this::getTeamAvgSkill)
-                .max()
-                .orElse(0);
-        double overallAvg = formedTeams.stream()
-                .mapToDouble(this::getTeamAvgSkill)
-                .average()
-                .orElse(0);
-        double range = maxAvg - minAvg;
-
-        System.out.printf("  Lowest Team Avg:   %.2f%n", minAvg);
-        System.out.printf("  Highest Team Avg:  %.2f%n", maxAvg);
-        System.out.printf("  Overall Average:   %.2f%n", overallAvg);
-        System.out.printf("  Skill Range:       %.2f ", range);
+        out.println("\n" + "-".repeat(60));
+        out.println("FINAL TEAM STATISTICS");
+        out.println("-".repeat(60));
+
+        TeamStats stats = TeamStats.of(formedTeams);
+        double minAvg = stats.getMinAverage();
+        double maxAvg = stats.getMaxAverage();
+        double overallAvg = stats.getOverallAverage();
+        double range = stats.getRange();
+
+        out.printf("  Lowest Team Avg:   %.2f%n", minAvg);
+        out.printf("  Highest Team Avg:  %.2f%n", maxAvg);
+        out.printf("  Overall Average:   %.2f%n", overallAvg);
+        out.printf("  Skill Range:       %.2f ", range);
 
         if (range <= 1.0) {
-            System.out.println("( EXCELLENT - Highly Balanced!)");
+            out.println("( EXCELLENT - Highly Balanced!)");
         } else if (range <= 2.0) {
-            System.out.println("( GOOD - Well Balanced)");
+            out.println("( GOOD - Well Balanced)");
         } else if (range <= 3.0) {
-            System.out.println("(  FAIR - Moderately Balanced)");
+            out.println("(  FAIR - Moderately Balanced)");
         } else {
-            System.out.println("( NEEDS IMPROVEMENT)");
+            out.println("( NEEDS IMPROVEMENT)");
+        }
+
+        out.println("-".repeat(60));
+    }
+
+
+    /**
+     * Warm start after roster changes. Teams that lost nobody are kept as they are;
+     * teams that lost members are refilled from the unassigned pool and the newcomers,
+     * or dissolved back into the pool if they cannot be made valid. Leftovers are then
+     * formed into new teams and a short rebalance runs with at most one swap per
+     * touched team, so most existing assignments stay put.
+     *
+     * The builder's own participant list is treated as the currently unassigned pool.
+     */
+    public List<Team> reformTeams(List<Team> existing, List<Participant> added, List<Participant> removed) {
+        Set<String> removedIds = new HashSet<>();
+        for (Participant p : removed) removedIds.add(p.getId());
+
+        synchronized (participantLock) {
+            participants.removeIf(p -> removedIds.contains(p.getId()));
+            for (Participant p : added) {
+                if (!removedIds.contains(p.getId())) participants.add(p);
+            }
+        }
+
+        formedTeams.clear();
+        List<Team> touched = new ArrayList<>();
+        int nextTeamNumber = 1;
+
+        for (Team old : existing) {
+            nextTeamNumber = Math.max(nextTeamNumber, old.getTeamNumber() + 1);
+
+            List<Participant> kept = new ArrayList<>();
+            for (Participant p : old.getMembers()) {
+                if (!removedIds.contains(p.getId())) kept.add(p);
+            }
+
+            Team team;
+            if (kept.size() == teamSize && validateTeam(kept, old.getTeamNumber())) {
+                team = new Team(old.getTeamNumber());
+                for (Participant p : kept) team.addMember(p);
+            } else {
+                team = repairTeam(old.getTeamNumber(), kept);
+                if (team == null) {
+                    synchronized (participantLock) {
+                        participants.addAll(kept);
+                    }
+                    logger.info("Team " + old.getTeamNumber() + " dissolved during re-formation.");
+                    continue;
+                }
+                touched.add(team);
+            }
+            formedTeams.add(team);
         }
 
-        System.out.println("-".repeat(60));
+        // Form new teams from whatever is still unassigned
+        int misses = 0;
+        while (participants.size() >= teamSize && misses < 3) {
+            Team team = formSingleTeam(nextTeamNumber);
+            if (team == null) {
+                misses++;
+                continue;
+            }
+            formedTeams.add(team);
+            touched.add(team);
+            nextTeamNumber++;
+            misses = 0;
+        }
+
+        logger.info("Re-formation: " + (formedTeams.size() - touched.size()) + " teams unchanged, "
+                + touched.size() + " repaired or new, " + participants.size() + " unassigned.");
+
+        if (!touched.isEmpty()) {
+            optimizeBalance(touched.size());
+        }
+        return new ArrayList<>(formedTeams);
+    }
+
+    private Team repairTeam(int teamNumber, List<Participant> kept) {
+        List<Participant> members = new ArrayList<>(kept);
+
+        synchronized (participantLock) {
+            // Same targets as formSingleTeam; rules.allows keeps every pick within the maxima
+            int leadersNeeded = Math.min(Math.max(1, rules.minOf("Leader")), rules.maxOf("Leader"));
+            while (countType(members, "Leader") < leadersNeeded) {
+                Participant leader = selectByPersonality("Leader", members, random);
+                if (leader == null) return null;
+                members.add(leader);
+            }
+            while (countType(members, "Thinker") < rules.minOf("Thinker")) {
+                Participant thinker = selectBestMatch(members, "Thinker", random);
+                if (thinker == null) return null;
+                members.add(thinker);
+            }
+            while (members.size() < teamSize) {
+                Participant next = selectBestMatch(members, "Balanced", random);
+                if (next == null) {
+                    next = selectBestMatch(members, null, random); // Any type
+                }
+                if (next == null) return null;
+                members.add(next);
+            }
+            if (!validateTeam(members, teamNumber)) return null;
+            participants.removeAll(members);
+        }
+
+        Team team = new Team(teamNumber);
+        for (Participant p : members) team.addMember(p);
+        return team;
+    }
+
+    private static long countType(List<Participant> members, String type) {
+        return members.stream().filter(p -> p.getPersonalityType().equalsIgnoreCase(type)).count();
     }
 
 
+    // Upper bound and binding constraint from the last formation run, or null
+    public FeasibilityCheck.Result getFeasibility() {
+        return feasibility;
+    }
+
     public List<Team> getFormedTeams() {
         return new ArrayList<>(formedTeams);
     }
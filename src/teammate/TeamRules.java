@@ -0,0 +1,274 @@
+package teammate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Team composition rules, read from a properties file so each event can use its own.
+ *
+ *   type.Leader.min=1       type.Leader.max=1
+ *   type.Thinker.min=1      type.Thinker.max=2
+ *   game.max=2              at most this many members preferring the same game
+ *   roles.min=3             distinct preferred roles required ...
+ *   roles.fromTeamSize=4    ... once the team has at least this many members
+ *
+ * The file is turned into a small array of rule checks once. Every check reads plain int
+ * counters (members per personality type, per game, distinct roles) that are refilled in a
+ * per-thread scratch object, so validating a team or a candidate allocates nothing. A check
+ * is given the number of slots still open, which lets the same rule reject a candidate early
+ * when the team could no longer be completed and validate a finished team (0 slots open).
+ */
+public class TeamRules {
+
+    private static final Logger logger = AppLogger.getLogger(TeamRules.class);
+
+    public static final String DEFAULT_FILE = "team_rules.properties";
+
+    private static final String[] TYPES = {"Leader", "Balanced", "Thinker"};
+    private static final int OTHER_TYPE = TYPES.length;
+    // Values outside GAMES/ROLES share a few hashed slots; a clash only makes a rule stricter
+    private static final int EXTRA_SLOTS = 16;
+
+    private static volatile TeamRules defaultRules;
+
+    /** Per-team counters the compiled rules read. */
+    static final class Counts {
+        final int[] types = new int[TYPES.length + 1];
+        final int[] games = new int[Participant.GAMES.size() + EXTRA_SLOTS];
+        final int[] roles = new int[Participant.ROLES.size() + EXTRA_SLOTS];
+        int size;
+        int maxGame;
+        int distinctRoles;
+
+        void reset() {
+            Arrays.fill(types, 0);
+            Arrays.fill(games, 0);
+            Arrays.fill(roles, 0);
+            size = maxGame = distinctRoles = 0;
+        }
+
+        void add(Participant p) {
+            size++;
+            types[typeSlot(p.getPersonalityType())]++;
+            int g = slot(Participant.GAMES, games.length, p.getPreferredGame());
+            if (++games[g] > maxGame) maxGame = games[g];
+            if (roles[slot(Participant.ROLES, roles.length, p.getPreferredRole())]++ == 0) distinctRoles++;
+        }
+    }
+
+    private interface Rule {
+        boolean feasible(Counts c, int openSlots, int teamSize);
+    }
+
+    private final int[] typeMin = new int[TYPES.length + 1];
+    private final int[] typeMax = new int[TYPES.length + 1];
+    private final int maxPerGame;
+    private final int minRoles;
+    private final int rolesFromTeamSize;
+    private final Rule[] rules;
+    private final ThreadLocal<Counts> scratch = ThreadLocal.withInitial(Counts::new);
+
+    private TeamRules(Properties props) {
+        Arrays.fill(typeMax, Integer.MAX_VALUE);
+        for (int t = 0; t < TYPES.length; t++) {
+            typeMin[t] = intProperty(props, "type." + TYPES[t] + ".min", 0);
+            typeMax[t] = intProperty(props, "type." + TYPES[t] + ".max", Integer.MAX_VALUE);
+            if (typeMin[t] > typeMax[t]) {
+                throw new IllegalArgumentException("type." + TYPES[t] + ".min is above its max");
+            }
+        }
+        maxPerGame = intProperty(props, "game.max", Integer.MAX_VALUE);
+        minRoles = intProperty(props, "roles.min", 0);
+        rolesFromTeamSize = intProperty(props, "roles.fromTeamSize", 0);
+        rules = compile();
+    }
+
+    // Only rules that can actually fail are kept, so unconstrained fields cost nothing
+    private Rule[] compile() {
+        List<Rule> list = new ArrayList<>();
+        int requiredTotal = 0;
+        for (int t = 0; t < TYPES.length; t++) {
+            final int slot = t;
+            final int max = typeMax[t];
+            if (max != Integer.MAX_VALUE) {
+                list.add((c, open, size) -> c.types[slot] <= max);
+            }
+            requiredTotal += typeMin[t];
+        }
+        if (requiredTotal > 0) {
+            final int[] min = typeMin.clone();
+            list.add((c, open, size) -> {
+                int missing = 0;
+                for (int t = 0; t < min.length; t++) {
+                    if (c.types[t] < min[t]) missing += min[t] - c.types[t];
+                }
+                return missing <= open;
+            });
+        }
+        if (maxPerGame != Integer.MAX_VALUE) {
+            final int max = maxPerGame;
+            list.add((c, open, size) -> c.maxGame <= max);
+        }
+        if (minRoles > 0) {
+            final int min = minRoles;
+            final int from = rolesFromTeamSize;
+            list.add((c, open, size) -> size < from || c.distinctRoles + open >= min);
+        }
+        return list.toArray(new Rule[0]);
+    }
+
+    public static TeamRules defaults() {
+        Properties props = new Properties();
+        props.setProperty("type.Leader.min", "1");
+        props.setProperty("type.Leader.max", "1");
+        props.setProperty("type.Thinker.min", "1");
+        props.setProperty("type.Thinker.max", "2");
+        props.setProperty("game.max", "2");
+        props.setProperty("roles.min", "3");
+        props.setProperty("roles.fromTeamSize", "4");
+        return new TeamRules(props);
+    }
+
+    public static TeamRules load(String filePath) throws IOException {
+        Properties props = new Properties();
+        try (Reader r = new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8)) {
+            props.load(r);
+        }
+        TeamRules rules = fromProperties(props, filePath);
+        logger.info("Team rules loaded from " + filePath + ": " + rules.describe());
+        return rules;
+    }
+
+    /** Rules from already parsed properties, e.g. received from a formation coordinator. */
+    static TeamRules fromProperties(Properties props, String source) {
+        for (String key : props.stringPropertyNames()) {
+            if (!key.matches("type\\.(Leader|Balanced|Thinker)\\.(min|max)|game\\.max|roles\\.min|roles\\.fromTeamSize")) {
+                throw new IllegalArgumentException("unknown rule " + key + " in " + source);
+            }
+        }
+        return new TeamRules(props);
+    }
+
+    /** The rules as properties that {@link #fromProperties} turns back into the same rules. */
+    Properties toProperties() {
+        Properties props = new Properties();
+        for (int t = 0; t < TYPES.length; t++) {
+            if (typeMin[t] > 0) props.setProperty("type." + TYPES[t] + ".min", String.valueOf(typeMin[t]));
+            if (typeMax[t] != Integer.MAX_VALUE) props.setProperty("type." + TYPES[t] + ".max", String.valueOf(typeMax[t]));
+        }
+        if (maxPerGame != Integer.MAX_VALUE) props.setProperty("game.max", String.valueOf(maxPerGame));
+        if (minRoles > 0) props.setProperty("roles.min", String.valueOf(minRoles));
+        if (rolesFromTeamSize > 0) props.setProperty("roles.fromTeamSize", String.valueOf(rolesFromTeamSize));
+        return props;
+    }
+
+    /** Rules from team_rules.properties in the working directory if present, otherwise the built-in ones. */
+    public static TeamRules getDefault() {
+        TeamRules rules = defaultRules;
+        if (rules != null) return rules;
+        synchronized (TeamRules.class) {
+            if (defaultRules == null) {
+                TeamRules loaded = null;
+                if (new File(DEFAULT_FILE).exists()) {
+                    try {
+                        loaded = load(DEFAULT_FILE);
+                    } catch (IOException | IllegalArgumentException e) {
+                        logger.warning("Ignoring " + DEFAULT_FILE + ": " + e.getMessage());
+                    }
+                }
+                defaultRules = loaded != null ? loaded : defaults();
+            }
+            return defaultRules;
+        }
+    }
+
+    private static int intProperty(Properties props, String key, int fallback) {
+        String value = props.getProperty(key);
+        if (value == null || value.isBlank()) return fallback;
+        try {
+            int n = Integer.parseInt(value.trim());
+            if (n < 0) throw new IllegalArgumentException(key + " must not be negative");
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number for " + key + ": " + value);
+        }
+    }
+
+    private static int typeSlot(String type) {
+        for (int t = 0; t < TYPES.length; t++) {
+            if (TYPES[t].equalsIgnoreCase(type)) return t;
+        }
+        return OTHER_TYPE;
+    }
+
+    private static int slot(List<String> known, int slots, String value) {
+        for (int i = 0; i < known.size(); i++) {
+            if (known.get(i).equalsIgnoreCase(value)) return i;
+        }
+        return known.size() + ((value == null ? 0 : value.toLowerCase(Locale.ROOT).hashCode()) & (EXTRA_SLOTS - 1));
+    }
+
+    private boolean check(Counts c, int openSlots, int teamSize) {
+        for (Rule rule : rules) {
+            if (!rule.feasible(c, openSlots, teamSize)) return false;
+        }
+        return true;
+    }
+
+    /** True if a complete team of the given target size satisfies every rule. */
+    public boolean accepts(List<Participant> team, int teamSize) {
+        Counts c = scratch.get();
+        c.reset();
+        for (Participant p : team) c.add(p);
+        return check(c, 0, teamSize);
+    }
+
+    /** True if the candidate can join and the team can still be completed within the rules. */
+    public boolean allows(Participant candidate, List<Participant> team, int teamSize) {
+        Counts c = scratch.get();
+        c.reset();
+        for (Participant p : team) c.add(p);
+        c.add(candidate);
+        return check(c, Math.max(0, teamSize - c.size), teamSize);
+    }
+
+    public int minOf(String type) {
+        return typeMin[typeSlot(type)];
+    }
+
+    public int maxOf(String type) {
+        return typeMax[typeSlot(type)];
+    }
+
+    public int getMaxPerGame() {
+        return maxPerGame;
+    }
+
+    public int getMinRoles() {
+        return minRoles;
+    }
+
+    public int getRolesFromTeamSize() {
+        return rolesFromTeamSize;
+    }
+
+    /** Suffix for cache keys so results formed under other rules are never reused; empty for the built-in rules. */
+    public String cacheTag() {
+        String text = describe();
+        return text.equals(defaults().describe()) ? "" : "-r" + Integer.toHexString(text.hashCode());
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < TYPES.length; t++) {
+            if (typeMin[t] == 0 && typeMax[t] == Integer.MAX_VALUE) continue;
+            sb.append(TYPES[t]).append(' ').append(typeMin[t]).append('-')
+              .append(typeMax[t] == Integer.MAX_VALUE ? "any" : String.valueOf(typeMax[t])).append(", ");
+        }
+        if (maxPerGame != Integer.MAX_VALUE) sb.append("max ").append(maxPerGame).append(" per game, ");
+        if (minRoles > 0) sb.append(minRoles).append("+ roles from size ").append(rolesFromTeamSize).append(", ");
+        return sb.length() == 0 ? "no rules" : sb.substring(0, sb.length() - 2);
+    }
+}
@@ -0,0 +1,141 @@
+package teammate;
+
+import java.util.List;
+
+/**
+ * Skill statistics for a list of teams, computed over primitive arrays in a few flat passes
+ * instead of one stream per team and statistic.
+ *
+ * Skills are copied once into an int array laid out member by member: slot j of every team
+ * is contiguous. When all teams have the same size (the normal case) the per-team sums and
+ * sums of squares are then built by adding whole columns, and averages, minimum and maximum
+ * are reductions over one double array. These are plain counted loops over arrays, which the
+ * JIT compiles to SIMD instructions. Teams of mixed size fall back to a loop per team.
+ *
+ * Averages are sum / size in double, the same value IntStream.average() gives, so code that
+ * moves to this class keeps producing identical results.
+ */
+public final class TeamStats {
+
+    private final int count;
+    private final int[] sizes;
+    private final long[] sums;
+    private final long[] squares;
+    private final double[] averages;
+    private double minAverage;
+    private double maxAverage;
+    private double meanOfAverages;
+
+    private TeamStats(int count) {
+        this.count = count;
+        this.sizes = new int[count];
+        this.sums = new long[count];
+        this.squares = new long[count];
+        this.averages = new double[count];
+    }
+
+    public static TeamStats of(List<Team> teams) {
+        int n = teams.size();
+        TeamStats stats = new TeamStats(n);
+        int width = 0;
+        boolean uniform = true;
+        for (int t = 0; t < n; t++) {
+            int size = teams.get(t).getMembers().size();
+            stats.sizes[t] = size;
+            if (t == 0) width = size;
+            else if (size != width) uniform = false;
+        }
+
+        if (uniform && width > 0) {
+            int[] column = new int[n];
+            for (int j = 0; j < width; j++) {
+                for (int t = 0; t < n; t++) column[t] = teams.get(t).getMembers().get(j).getSkillLevel();
+                addColumn(column, stats.sums, stats.squares, n);
+            }
+        } else {
+            for (int t = 0; t < n; t++) {
+                long sum = 0, sq = 0;
+                for (Participant p : teams.get(t).getMembers()) {
+                    int s = p.getSkillLevel();
+                    sum += s;
+                    sq += (long) s * s;
+                }
+                stats.sums[t] = sum;
+                stats.squares[t] = sq;
+            }
+        }
+        stats.reduce();
+        return stats;
+    }
+
+    // One SIMD-friendly pass: the same member slot of every team
+    private static void addColumn(int[] column, long[] sums, long[] squares, int n) {
+        for (int t = 0; t < n; t++) {
+            long s = column[t];
+            sums[t] += s;
+            squares[t] += s * s;
+        }
+    }
+
+    private void reduce() {
+        for (int t = 0; t < count; t++) {
+            averages[t] = sizes[t] == 0 ? 0.0 : (double) sums[t] / sizes[t];
+        }
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE, total = 0;
+        for (int t = 0; t < count; t++) {
+            double a = averages[t];
+            min = Math.min(min, a);
+            max = Math.max(max, a);
+            total += a;
+        }
+        minAverage = count == 0 ? 0 : min;
+        maxAverage = count == 0 ? 0 : max;
+        meanOfAverages = count == 0 ? 0 : total / count;
+    }
+
+    /** Average skill of a single team; 0 for an empty team, like Team.getAverageSkill. */
+    public static double average(Team team) {
+        List<Participant> members = team.getMembers();
+        if (members.isEmpty()) return 0.0;
+        long sum = 0;
+        for (int i = 0; i < members.size(); i++) sum += members.get(i).getSkillLevel();
+        return (double) sum / members.size();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getSum(int team) {
+        return sums[team];
+    }
+
+    public double getAverage(int team) {
+        return averages[team];
+    }
+
+    /** Population variance of the members' skills in one team. */
+    public double getVariance(int team) {
+        if (sizes[team] == 0) return 0.0;
+        double mean = averages[team];
+        return Math.max(0.0, (double) squares[team] / sizes[team] - mean * mean);
+    }
+
+    public double getMinAverage() {
+        return minAverage;
+    }
+
+    public double getMaxAverage() {
+        return maxAverage;
+    }
+
+    /** Gap between the strongest and weakest team average. */
+    public double getRange() {
+        return maxAverage - minAverage;
+    }
+
+    /** Mean of the team averages (each team counts once, whatever its size). */
+    public double getOverallAverage() {
+        return meanOfAverages;
+    }
+}
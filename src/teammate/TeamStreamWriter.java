@@ -0,0 +1,181 @@
+package teammate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Sink for TeamBuilder.streamTeams: finished teams go through a bounded queue to a
+ * dedicated writer thread, so file output overlaps with formation and a slow disk
+ * pushes back on the builder instead of piling teams up in memory.
+ *
+ * Files ending in .bin get a compact binary layout; anything else gets the same CSV
+ * layout as CSVHandler.saveFormedTeams. A further .gz suffix compresses either one
+ * on the fly (see CompressedFiles). Running totals are kept for reporting because
+ * the teams themselves are not retained.
+ */
+public class TeamStreamWriter implements Consumer<Team>, AutoCloseable {
+
+    private static final Logger logger = AppLogger.getLogger(TeamStreamWriter.class);
+
+    private static final Team END = new Team(-1);
+    private static final int BINARY_MAGIC = 0x544D5431; // "TMT1"
+
+    private final BlockingQueue<Team> queue;
+    private final boolean binary;
+    private final Thread writer;
+    private final OutputStream stream;
+    private volatile IOException failure;
+
+    // Totals, only touched by the writer thread until close() returns
+    private int teams;
+    private int members;
+    private double minAvg = Double.MAX_VALUE;
+    private double maxAvg = -Double.MAX_VALUE;
+    private double sumAvg;
+
+    public TeamStreamWriter(String filePath, int capacity) throws IOException {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.binary = CompressedFiles.baseName(filePath).endsWith(".bin");
+        this.stream = CompressedFiles.openOutput(filePath);
+        this.writer = new Thread(this::drain, "team-stream-writer");
+        this.writer.start();
+        logger.info("Streaming teams to " + filePath + (binary ? " (binary" : " (csv")
+                + (CompressedFiles.isCompressed(filePath) ? ", gzip)" : ")"));
+    }
+
+    @Override
+    public void accept(Team team) {
+        try {
+            while (!queue.offer(team, 100, TimeUnit.MILLISECONDS)) {
+                if (failure != null || !writer.isAlive()) {
+                    throw new UncheckedIOException("Team stream writer stopped",
+                            failure != null ? failure : new IOException("writer thread ended"));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while streaming team " + team.getTeamNumber(), e);
+        }
+    }
+
+    private void drain() {
+        try (OutputStream os = stream) {
+            DataOutputStream data = binary ? new DataOutputStream(os) : null;
+            Writer text = binary ? null : new OutputStreamWriter(os, StandardCharsets.UTF_8);
+
+            if (binary) {
+                data.writeInt(BINARY_MAGIC);
+            } else {
+                text.write("TeamNumber,MemberID,Name,Email,Game,Role,Skill,Score,PersonalityType\n");
+            }
+
+            StringBuilder sb = new StringBuilder(512);
+            while (true) {
+                Team team = queue.take();
+                if (team == END) break;
+
+                if (binary) {
+                    writeBinary(data, team);
+                } else {
+                    sb.setLength(0);
+                    appendCsv(sb, team);
+                    text.write(sb.toString());
+                }
+                record(team);
+            }
+
+            if (binary) {
+                data.writeInt(-1);
+                data.flush();
+            } else {
+                text.flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+            logger.severe("Team stream failed: " + e.getMessage());
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void appendCsv(StringBuilder sb, Team team) {
+        for (Participant p : team.getMembers()) {
+            sb.append(team.getTeamNumber()).append(',')
+              .append(p.getId()).append(',')
+              .append(p.getName()).append(',');
+            p.appendEmail(sb).append(',')
+              .append(p.getPreferredGame()).append(',')
+              .append(p.getPreferredRole()).append(',')
+              .append(p.getSkillLevel()).append(',')
+              .append(p.getPersonalityScore()).append(',')
+              .append(p.getPersonalityType()).append('\n');
+        }
+    }
+
+    // Team number, member count, then per member: ID, name, email, game, role, skill, score, type
+    private static void writeBinary(DataOutputStream out, Team team) throws IOException {
+        out.writeInt(team.getTeamNumber());
+        out.writeByte(team.getMembers().size());
+        for (Participant p : team.getMembers()) {
+            out.writeUTF(p.getId());
+            out.writeUTF(p.getName());
+            out.writeUTF(p.getEmail());
+            out.writeUTF(p.getPreferredGame());
+            out.writeUTF(p.getPreferredRole());
+            out.writeByte(p.getSkillLevel());
+            out.writeByte(p.getPersonalityScore());
+            out.writeUTF(p.getPersonalityType());
+        }
+    }
+
+    private void record(Team team) {
+        double avg = team.getAverageSkill();
+        teams++;
+        members += team.getMembers().size();
+        minAvg = Math.min(minAvg, avg);
+        maxAvg = Math.max(maxAvg, avg);
+        sumAvg += avg;
+    }
+
+    /** Waits for every queued team to be written; throws if writing failed. */
+    @Override
+    public void close() throws IOException {
+        try {
+            while (failure == null && writer.isAlive() && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                // writer is still draining a full queue
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while finishing team stream");
+        }
+        if (failure != null) throw failure;
+        logger.info("Team stream closed after " + teams + " teams.");
+    }
+
+    public int getTeamCount() {
+        return teams;
+    }
+
+    public int getMemberCount() {
+        return members;
+    }
+
+    public double getMinAverage() {
+        return teams == 0 ? 0 : minAvg;
+    }
+
+    public double getMaxAverage() {
+        return teams == 0 ? 0 : maxAvg;
+    }
+
+    public double getOverallAverage() {
+        return teams == 0 ? 0 : sumAvg / teams;
+    }
+}
@@ -0,0 +1,168 @@
+package teammate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs coordinated formation against in-process workers on loopback sockets, so no
+ * network or extra JVM is needed.
+ */
+class FormationCoordinatorTest {
+
+    private static final int TEAM_SIZE = 5;
+    private static final long SEED = 42;
+    private static final int THREADS = 2;
+
+    private final List<ServerSocket> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopWorkers() throws IOException {
+        for (ServerSocket server : servers) server.close();
+    }
+
+    private static List<Participant> pool(int size) {
+        Random random = new Random(7);
+        List<Participant> pool = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            int score = 20 + random.nextInt(81);
+            pool.add(new Participant(String.format("P%03d", i), "Player " + i, "player" + i + "@example.com",
+                    Participant.GAMES.get(random.nextInt(Participant.GAMES.size())), 1 + random.nextInt(10),
+                    Participant.ROLES.get(random.nextInt(Participant.ROLES.size())), score,
+                    Participant.classify(score)));
+        }
+        return pool;
+    }
+
+    // Accepts connections on a loopback port and hands each one to the given handler
+    private InetSocketAddress listen(SocketHandler handler) throws IOException {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        servers.add(server);
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread connection = new Thread(() -> handler.handle(socket), "test-worker-connection");
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "test-worker");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+    }
+
+    private interface SocketHandler {
+        void handle(Socket socket);
+    }
+
+    private InetSocketAddress startWorker() throws IOException {
+        FormationWorker worker = new FormationWorker(THREADS);
+        return listen(worker::serve);
+    }
+
+    // Forwards to a real worker but corrupts the version byte of the partition frame
+    private InetSocketAddress startCorruptingProxy(InetSocketAddress worker) throws IOException {
+        return listen(client -> {
+            try (client; Socket upstream = new Socket()) {
+                upstream.connect(worker);
+                DataInputStream in = new DataInputStream(client.getInputStream());
+                DataOutputStream out = new DataOutputStream(upstream.getOutputStream());
+                out.writeInt(in.readInt());
+                out.writeByte(in.readUnsignedByte() + 1);
+                out.flush();
+                upstream.getInputStream().transferTo(client.getOutputStream());
+            } catch (IOException ignored) {
+                // The coordinator sees the broken exchange and falls back
+            }
+        });
+    }
+
+    // A port nothing listens on, so every partition is formed locally
+    private static InetSocketAddress unreachable() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), probe.getLocalPort());
+        }
+    }
+
+    private static FormationCoordinator coordinator(List<Participant> pool, List<InetSocketAddress> workers) {
+        FormationCoordinator coordinator = new FormationCoordinator(pool, TEAM_SIZE, workers);
+        coordinator.setSeed(SEED);
+        coordinator.setLocalThreads(THREADS);
+        return coordinator;
+    }
+
+    // Team number -> sorted member IDs, plus the unassigned IDs under key 0
+    private static Map<Integer, List<String>> layout(List<Team> teams, List<Participant> unassigned) {
+        Map<Integer, List<String>> layout = new TreeMap<>();
+        for (Team team : teams) {
+            layout.put(team.getTeamNumber(), team.getMembers().stream().map(Participant::getId).sorted().toList());
+        }
+        layout.put(0, unassigned.stream().map(Participant::getId).sorted().toList());
+        return layout;
+    }
+
+    private static Map<Integer, List<String>> localLayout(List<Participant> pool, int partitions) throws IOException {
+        List<InetSocketAddress> down = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) down.add(unreachable());
+        FormationCoordinator local = coordinator(pool, down);
+        List<Team> teams = local.formTeams();
+        assertEquals(partitions, local.getFailedWorkers());
+        return layout(teams, local.getUnassignedParticipants());
+    }
+
+    @Test
+    void workersMatchLocalFormationForFixedSeed() throws IOException {
+        List<Participant> pool = pool(503);
+        FormationCoordinator coordinator = coordinator(pool, List.of(startWorker(), startWorker(), startWorker()));
+
+        List<Team> teams = coordinator.formTeams();
+        assertEquals(0, coordinator.getFailedWorkers());
+        assertTrue(teams.size() >= 50, "Only " + teams.size() + " teams formed");
+
+        Map<Integer, List<String>> remote = layout(teams, coordinator.getUnassignedParticipants());
+        assertEquals(localLayout(pool, 3), remote);
+
+        Set<String> seen = new HashSet<>();
+        remote.values().forEach(ids -> ids.forEach(id -> assertTrue(seen.add(id), "Placed twice: " + id)));
+        assertEquals(pool.size(), seen.size());
+    }
+
+    @Test
+    void malformedFrameFallsBackToLocalFormation() throws IOException {
+        List<Participant> pool = pool(240);
+        FormationCoordinator coordinator = coordinator(pool,
+                List.of(startWorker(), startCorruptingProxy(startWorker())));
+
+        List<Team> teams = coordinator.formTeams();
+        assertEquals(1, coordinator.getFailedWorkers());
+        assertFalse(teams.isEmpty());
+        assertEquals(localLayout(pool, 2), layout(teams, coordinator.getUnassignedParticipants()));
+    }
+
+    @Test
+    void workerRejectsMalformedFrame() throws IOException {
+        InetSocketAddress worker = startWorker();
+        try (Socket socket = new Socket()) {
+            socket.connect(worker);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(0x12345678);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            IOException e = assertThrows(IOException.class, () -> FormationWorker.readResult(in));
+            assertTrue(e.getMessage().contains("not a formation partition"), e.getMessage());
+        }
+    }
+}
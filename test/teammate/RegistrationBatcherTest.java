@@ -0,0 +1,211 @@
+package teammate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Simulates many survey sessions submitting at once against a temporary CSV.
+ */
+class RegistrationBatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private ParticipantIndex openIndex() throws Exception {
+        return ParticipantIndex.open(dir.resolve("participants.csv").toString());
+    }
+
+    // Starts every submitter together and returns their futures once all have submitted
+    private static List<CompletableFuture<Participant>> submitConcurrently(
+            RegistrationBatcher batcher, int submitters, int perSubmitter,
+            String emailFormat, long timeoutMillis) throws Exception {
+        List<CompletableFuture<Participant>> futures = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(submitters);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < submitters; t++) {
+                int submitter = t;
+                done.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < perSubmitter; i++) {
+                        futures.add(batcher.submit("Session User", String.format(emailFormat, submitter, i),
+                                "Chess", 5, "Attacker", 15, timeoutMillis, TimeUnit.MILLISECONDS));
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        return new ArrayList<>(futures);
+    }
+
+    private static void awaitAll(List<CompletableFuture<Participant>> futures) throws Exception {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void concurrentSessionsGetUniqueDenseIds() throws Exception {
+        int submitters = 16;
+        int perSubmitter = 100;
+        int total = submitters * perSubmitter;
+
+        List<Participant> committed = Collections.synchronizedList(new ArrayList<>());
+        RegistrationBatcher batcher = RegistrationBatcher.start(openIndex(), 64, committed::addAll);
+        List<CompletableFuture<Participant>> futures;
+        try {
+            futures = submitConcurrently(batcher, submitters, perSubmitter, "user%d.%d@example.com", 10_000);
+            awaitAll(futures);
+        } finally {
+            batcher.close();
+        }
+
+        Set<String> ids = new HashSet<>();
+        for (CompletableFuture<Participant> f : futures) {
+            String id = f.get().getId();
+            assertTrue(ids.add(id), "ID handed out twice: " + id);
+        }
+        for (int i = 1; i <= total; i++) {
+            assertTrue(ids.contains(String.format("P%03d", i)), "ID P" + i + " was skipped");
+        }
+        assertEquals(total, committed.size());
+        assertEquals(0, batcher.getPendingCount());
+
+        // A fresh index over the written CSV finds every row under the ID it was given
+        ParticipantIndex reopened = openIndex();
+        assertEquals(total, reopened.size());
+        assertEquals(String.format("P%03d", total + 1), reopened.nextId());
+        for (CompletableFuture<Participant> f : futures) {
+            Participant p = f.get();
+            assertEquals(p.getEmail(), reopened.find(p.getId()).getEmail());
+        }
+    }
+
+    @Test
+    void duplicateEmailsAreRejected() throws Exception {
+        RegistrationBatcher batcher = RegistrationBatcher.start(openIndex(), 64, created -> { });
+        List<CompletableFuture<Participant>> futures;
+        try {
+            batcher.submit("First User", "taken@example.com", "FIFA", 4, "Defender", 12, 1, TimeUnit.SECONDS)
+                    .get(10, TimeUnit.SECONDS);
+            // Every session registers the same ten emails; only the letter case differs from the index key
+            futures = submitConcurrently(batcher, 8, 10, "Shared%2$d@Example.com", 10_000);
+            futures.add(batcher.submit("Second User", "TAKEN@example.com", "FIFA", 4, "Defender", 12,
+                    1, TimeUnit.SECONDS));
+            awaitAll(futures);
+        } finally {
+            batcher.close();
+        }
+
+        Map<String, Integer> accepted = new HashMap<>();
+        int duplicates = 0;
+        for (CompletableFuture<Participant> f : futures) {
+            try {
+                accepted.merge(f.get().getEmailKey(), 1, Integer::sum);
+            } catch (ExecutionException e) {
+                assertInstanceOf(RegistrationBatcher.DuplicateEmailException.class, e.getCause());
+                duplicates++;
+            }
+        }
+        assertEquals(10, accepted.size());
+        accepted.forEach((email, count) -> assertEquals(1, count, email));
+        assertEquals(futures.size() - 10, duplicates);
+        assertEquals(11, openIndex().size());
+    }
+
+    @Test
+    void fullQueueTimesOutSubmitters() throws Exception {
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // The writer holds the first batch in onCommit, so it keeps counting against the capacity
+        RegistrationBatcher batcher = RegistrationBatcher.start(openIndex(), 2, created -> {
+            committing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            CompletableFuture<Participant> first = batcher.submit("First User", "first@example.com",
+                    "Chess", 5, "Attacker", 15, 1, TimeUnit.SECONDS);
+            assertTrue(committing.await(10, TimeUnit.SECONDS));
+            CompletableFuture<Participant> second = batcher.submit("Second User", "second@example.com",
+                    "Chess", 5, "Attacker", 15, 1, TimeUnit.SECONDS);
+            assertEquals(2, batcher.getPendingCount());
+
+            long started = System.nanoTime();
+            List<CompletableFuture<Participant>> blocked =
+                    submitConcurrently(batcher, 4, 3, "blocked%d.%d@example.com", 50);
+            assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(50),
+                    "Submitters should wait for their timeout before giving up");
+            for (CompletableFuture<Participant> f : blocked) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+                assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            }
+
+            release.countDown();
+            assertEquals("P001", first.get(10, TimeUnit.SECONDS).getId());
+            assertEquals("P002", second.get(10, TimeUnit.SECONDS).getId());
+        } finally {
+            release.countDown();
+            batcher.close();
+        }
+        assertEquals(2, openIndex().size());
+    }
+
+    @Test
+    void closeCompletesEveryPendingFuture() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RegistrationBatcher batcher = RegistrationBatcher.start(openIndex(), 10_000, created -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Queue up work behind a stalled writer, then close while it is still pending
+        List<CompletableFuture<Participant>> queued = submitConcurrently(batcher, 8, 50, "queued%d.%d@example.com", 1000);
+        Thread closer = new Thread(batcher::close);
+        closer.start();
+        List<CompletableFuture<Participant>> racing = submitConcurrently(batcher, 8, 50, "racing%d.%d@example.com", 1000);
+        release.countDown();
+        closer.join(30_000);
+        assertFalse(closer.isAlive());
+
+        int stored = 0;
+        for (CompletableFuture<Participant> f : queued) {
+            assertTrue(f.isDone());
+            assertNotNull(f.get());
+            stored++;
+        }
+        for (CompletableFuture<Participant> f : racing) {
+            assertTrue(f.isDone(), "A submission racing close() was left waiting");
+            if (!f.isCompletedExceptionally()) {
+                stored++;
+            } else {
+                ExecutionException e = assertThrows(ExecutionException.class, f::get);
+                assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            }
+        }
+        assertEquals(0, batcher.getPendingCount());
+        assertEquals(stored, openIndex().size());
+
+        CompletableFuture<Participant> late = batcher.submit("Late User", "late@example.com",
+                "Chess", 5, "Attacker", 15, 1, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, late::get);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+}